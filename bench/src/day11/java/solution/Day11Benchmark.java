@@ -0,0 +1,78 @@
+package solution;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import intcode.InputLog;
+import intcode.Parser;
+
+/**
+ * Benchmarks of the painting robot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class Day11Benchmark {
+    @Param("day11/input.txt")
+    public String input;
+
+    private long[] mInstructionArray;
+    private InputLog mLog;
+    // The painter prints a line after each run
+    private PrintStream mConsole;
+
+    @Setup
+    public void load() throws Exception {
+        mConsole = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        mInstructionArray = Parser.loadProgram(input);
+        Painter recorded = new Painter(mInstructionArray);
+        mLog = new InputLog();
+        recorded.setInputLog(mLog);
+        recorded.run();
+    }
+
+    @TearDown
+    public void restoreConsole() {
+        System.setOut(mConsole);
+    }
+
+    @Benchmark
+    public long run() {
+        Painter painter = new Painter(mInstructionArray);
+        painter.run();
+        return painter.getPaintedPanelCount();
+    }
+
+    @Benchmark
+    public long runCompiled() {
+        Painter painter = new Painter(mInstructionArray, true);
+        painter.run();
+        return painter.getPaintedPanelCount();
+    }
+
+    @Benchmark
+    public long replay() {
+        Painter painter = new Painter(mInstructionArray);
+        painter.replay(mLog);
+        return painter.getPaintedPanelCount();
+    }
+}
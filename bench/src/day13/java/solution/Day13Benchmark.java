@@ -0,0 +1,75 @@
+package solution;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import intcode.InputLog;
+import intcode.Intcode;
+import intcode.Parser;
+
+/**
+ * Benchmarks of the arcade cabinet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class Day13Benchmark {
+    @Param("day13/input.txt")
+    public String input;
+
+    private long[] mInstructionArray;
+    private long[] mFreePlayArray;
+    private InputLog mLog;
+
+    @Setup
+    public void load() throws Exception {
+        mInstructionArray = Parser.loadProgram(input);
+        mFreePlayArray = mInstructionArray.clone();
+        mFreePlayArray[0] = 2;
+
+        Intcode recorded = new Intcode(mFreePlayArray, null);
+        mLog = new InputLog();
+        recorded.setInputLog(mLog);
+        new Screen(recorded).startUpAndPlay();
+    }
+
+    @Benchmark
+    public long startUp() {
+        return new Intcode(mInstructionArray, null).run();
+    }
+
+    @Benchmark
+    public int startUpAndPlay() {
+        Screen screen = new Screen(mFreePlayArray);
+        screen.startUpAndPlay();
+        return screen.getScore();
+    }
+
+    @Benchmark
+    public int startUpAndPlayCompiled() {
+        Screen screen = new Screen(mFreePlayArray, true);
+        screen.startUpAndPlay();
+        return screen.getScore();
+    }
+
+    @Benchmark
+    public int replay() {
+        Screen screen = new Screen(mFreePlayArray);
+        screen.replay(mLog);
+        return screen.getScore();
+    }
+}
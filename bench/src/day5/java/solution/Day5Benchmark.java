@@ -0,0 +1,49 @@
+package solution;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import intcode.Intcode;
+import intcode.Parser;
+
+/**
+ * Benchmarks of the diagnostic program.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class Day5Benchmark {
+    @Param("day5/input.txt")
+    public String input;
+
+    private long[] mInstructionArray;
+
+    @Setup
+    public void load() throws Exception {
+        mInstructionArray = Parser.loadProgram(input);
+    }
+
+    @Benchmark
+    public long airConditioner() {
+        return new Intcode(mInstructionArray, new long[] { 1 }).run();
+    }
+
+    @Benchmark
+    public long thermalRadiator() {
+        return new Intcode(mInstructionArray, new long[] { 5 }).run();
+    }
+}
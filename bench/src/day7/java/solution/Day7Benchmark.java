@@ -0,0 +1,98 @@
+package solution;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import intcode.BatchIntcode;
+import intcode.Parser;
+
+/**
+ * Benchmarks of the amplifiers over every order of phase settings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class Day7Benchmark {
+    @Param("day7/input.txt")
+    public String input;
+
+    private long[] mInstructionArray;
+    private int[][] mOrders;
+
+    @Setup
+    public void load() throws Exception {
+        mInstructionArray = Parser.loadProgram(input);
+        mOrders = permutations(new int[] { 0, 1, 2, 3, 4 }).toArray(int[][]::new);
+
+        long[] batchSignals = runInBatch();
+        AmplifierSystem amps = new AmplifierSystem(mInstructionArray, 5);
+        for (int i = 0; i < mOrders.length; i++) {
+            if (batchSignals[i] != amps.run(mOrders[i])) {
+                throw new RuntimeException("BatchIntcode differs from Intcode for " + Arrays.toString(mOrders[i]));
+            }
+        }
+    }
+
+    // A new system per operation, as `run` reuses the signals of earlier calls
+    @Benchmark
+    public long run() {
+        AmplifierSystem amps = new AmplifierSystem(mInstructionArray, 5);
+        return permutations(new int[] { 0, 1, 2, 3, 4 }).mapToLong(amps::run).max().orElse(0);
+    }
+
+    @Benchmark
+    public long runWithFeedback() {
+        AmplifierSystem amps = new AmplifierSystem(mInstructionArray, 5);
+        return permutations(new int[] { 5, 6, 7, 8, 9 }).mapToLong(amps::runWithFeedback).max().orElse(0);
+    }
+
+    @Benchmark
+    public long runInBatchEveryOrder() {
+        return Arrays.stream(runInBatch()).max().orElse(0);
+    }
+
+    /**
+     * Runs the amplifiers in series for every order of phase settings at once,
+     * one BatchIntcode instance per order.
+     *
+     * @return the signal of each order.
+     */
+    private long[] runInBatch() {
+        long[] signals = new long[mOrders.length];
+        Arrays.fill(signals, AmplifierSystem.INPUT_VALUE);
+        for (int amplifier = 0; amplifier < mOrders[0].length; amplifier++) {
+            BatchIntcode amplifiers = new BatchIntcode(mInstructionArray, mOrders.length);
+            for (int i = 0; i < mOrders.length; i++) {
+                amplifiers.provideInput(i, new long[] { mOrders[i][amplifier], signals[i] });
+            }
+            amplifiers.run();
+            for (int i = 0; i < mOrders.length; i++) {
+                long[] outputs = amplifiers.getOutputs(i);
+                signals[i] = outputs[outputs.length - 1];
+            }
+        }
+
+        return signals;
+    }
+
+    private static Stream<int[]> permutations(int[] values) {
+        return StreamSupport.stream(new PermutationSpliterator(values), true);
+    }
+}
@@ -0,0 +1,110 @@
+package solution;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import intcode.BatchIntcode;
+import intcode.Intcode;
+import intcode.Parser;
+import intcode.Trace;
+
+/**
+ * Benchmarks of the BOOST program, run by Intcode and, many at once, by
+ * BatchIntcode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class Day9Benchmark {
+    // Instances of the batch benchmarks, all in sensor boost mode
+    private static final int BATCH_INSTANCES = 64;
+    // Entries of the trace of the traced benchmark
+    private static final int TRACE_CAPACITY = 1024;
+
+    @Param("day9/input.txt")
+    public String input;
+
+    private long[] mInstructionArray;
+    private long[] mBoostModes;
+
+    @Setup
+    public void load() throws Exception {
+        mInstructionArray = Parser.loadProgram(input);
+        mBoostModes = new long[BATCH_INSTANCES];
+        Arrays.fill(mBoostModes, 2);
+
+        // Checked with both modes, whose instances take different paths
+        long[] modes = new long[BATCH_INSTANCES];
+        for (int i = 0; i < BATCH_INSTANCES; i++) {
+            modes[i] = i % 2 + 1;
+        }
+        BatchIntcode batch = runInBatch(modes);
+        for (int i = 0; i < BATCH_INSTANCES; i++) {
+            long[] expected = { new Intcode(mInstructionArray, new long[] { modes[i] }).run() };
+            if (!Arrays.equals(batch.getOutputs(i), expected)) {
+                throw new RuntimeException("BatchIntcode differs from Intcode for instance " + i);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long testMode() {
+        return new Intcode(mInstructionArray, new long[] { 1 }).run();
+    }
+
+    @Benchmark
+    public long sensorBoost() {
+        return new Intcode(mInstructionArray, new long[] { 2 }).run();
+    }
+
+    // The cost of tracing, against sensorBoost (see Trace)
+    @Benchmark
+    public long sensorBoostTraced() {
+        Intcode intcode = new Intcode(mInstructionArray, new long[] { 2 });
+        intcode.setTrace(new Trace(TRACE_CAPACITY));
+        return intcode.run();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void sensorBoostTimesBatch(Blackhole blackhole) {
+        for (int i = 0; i < BATCH_INSTANCES; i++) {
+            blackhole.consume(new Intcode(mInstructionArray, new long[] { 2 }).run());
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public BatchIntcode sensorBoostInBatch() {
+        return runInBatch(mBoostModes);
+    }
+
+    /**
+     * @return a BatchIntcode that ran one instance per mode of `modes`.
+     */
+    private BatchIntcode runInBatch(long[] modes) {
+        BatchIntcode batch = new BatchIntcode(mInstructionArray, modes.length);
+        for (int i = 0; i < modes.length; i++) {
+            batch.provideInput(i, new long[] { modes[i] });
+        }
+        batch.run();
+        return batch;
+    }
+}
@@ -0,0 +1,19 @@
+package solution;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of the day the module was built for, with JMH's command
+ * line options and the GC profiler. Each benchmark reports its throughput and
+ * its average time per operation, in a time unit that suits the length of one
+ * operation, and the profiler its allocation rate and allocation per operation.
+ */
+public class Benchmarks {
+    public static void main(String args[]) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,27 @@
+package solution;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a (color, turn) command of the painting robot, at
+ * the panel it paints.
+ */
+@Name("intcode.day11.Paint")
+@Label("Robot Paint Command")
+@Category({ "Intcode", "Devices" })
+class PaintEvent extends Event {
+    @Label("X")
+    int x;
+
+    @Label("Y")
+    int y;
+
+    @Label("Color")
+    int color;
+
+    @Label("Turn")
+    int turn;
+}
@@ -2,18 +2,33 @@ package solution;
 
 import java.util.HashMap;
 
+import intcode.CompiledIntcode;
+import intcode.InputLog;
+import intcode.Intcode;
+
 public class Painter {
 
     private Intcode mIntcode;
     private Position mCurrentPosition;
     private Direction mCurrentDirection;
     private HashMap<Position, Integer> mPaintedLocations;
+    // Reused for every (color, turn) command
+    private final long[] mCommand = new long[2];
+    private int mCommandIndex;
 
     // For visualizing message painted
     private int mXMax, mXMin, mYMax, mYMin;
 
     public Painter(long[] instructionArray) {
-        mIntcode = new Intcode(instructionArray, null);
+        this(instructionArray, false);
+    }
+
+    /**
+     * @param compiled run the program with CompiledIntcode instead of the
+     *                 interpreter.
+     */
+    public Painter(long[] instructionArray, boolean compiled) {
+        mIntcode = compiled ? new CompiledIntcode(instructionArray, null) : new Intcode(instructionArray, null);
         mCurrentPosition = new Position(0, 0);
         mCurrentDirection = Direction.N;
         mPaintedLocations = new HashMap<>();
@@ -25,32 +40,70 @@ public class Painter {
         mPaintedLocations.put(new Position(0, 0), 1);
     }
 
+    /**
+     * Records the colors the camera reads into `log`, for `replay`.
+     */
+    public void setInputLog(InputLog log) {
+        mIntcode.setInputLog(log);
+    }
+
     /**
      * Starts painting.
      */
     public void run() {
-        while (!mIntcode.isHalt()) {
-            // Get input value based on color of current panel
-            int currentPositionColor = mPaintedLocations.getOrDefault(mCurrentPosition, 0);
-            mIntcode.provideInput(new long[] { Long.valueOf(currentPositionColor) });
-
-            // Run the program and get 2 outputs
-            int colorOutput = (int) mIntcode.runUntilOutput();
-            int rotateOutput = (int) mIntcode.runUntilOutput();
-
-            // Paint black or white
-            if (colorOutput != currentPositionColor) {
-                mPaintedLocations.put(mCurrentPosition.clone(), colorOutput);
-            }
+        // The camera reads the color of the current panel when asked
+        mIntcode.setInputSupplier(() -> mPaintedLocations.getOrDefault(mCurrentPosition, 0));
 
-            // Turn, then move forward
-            mCurrentDirection = mCurrentDirection.turn(rotateOutput);
-            mCurrentPosition.moveForward(mCurrentDirection);
-            setMapRange();
+        // Run the program and get 2 outputs per step
+        while (mIntcode.runUntilOutputs(mCommand, 2) == Intcode.Status.OUTPUT) {
+            paint((int) mCommand[0], (int) mCommand[1]);
         }
         System.out.println();
     }
 
+    /**
+     * Paints again with the camera colors of `log`, recorded by a painter in the
+     * same state, printing the same. The panel colors are not looked up, and the
+     * program runs in one go. Throws if the program asks for more colors than
+     * the log holds, i.e. the log does not match the painting.
+     */
+    public void replay(InputLog log) {
+        log.replay(mIntcode);
+        mCommandIndex = 0;
+        Intcode.Status status = mIntcode.run(output -> {
+            mCommand[mCommandIndex++] = output;
+            if (mCommandIndex == 2) {
+                mCommandIndex = 0;
+                paint((int) mCommand[0], (int) mCommand[1]);
+            }
+        });
+        if (status != Intcode.Status.HALTED) {
+            throw new RuntimeException("Input log too short for the painting (" + log.size() + " colors)");
+        }
+        System.out.println();
+    }
+
+    private void paint(int colorOutput, int rotateOutput) {
+        PaintEvent event = new PaintEvent();
+        if (event.shouldCommit()) {
+            event.x = mCurrentPosition.x;
+            event.y = mCurrentPosition.y;
+            event.color = colorOutput;
+            event.turn = rotateOutput;
+            event.commit();
+        }
+
+        // Paint black or white
+        if (colorOutput != mPaintedLocations.getOrDefault(mCurrentPosition, 0)) {
+            mPaintedLocations.put(mCurrentPosition.clone(), colorOutput);
+        }
+
+        // Turn, then move forward
+        mCurrentDirection = mCurrentDirection.turn(rotateOutput);
+        mCurrentPosition.moveForward(mCurrentDirection);
+        setMapRange();
+    }
+
     /**
      * @return number of panels painted at least once.
      */
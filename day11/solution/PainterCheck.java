@@ -0,0 +1,49 @@
+package solution;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Checks that the robot stops painting when its program halts: the program
+ * paints the first panel white, turns right and halts, so exactly one panel is
+ * painted and the message is that panel followed by the empty one the robot
+ * moved to. Painting from the last outputs of the halted program would paint
+ * that second panel too. Throws if the count or the message differs.
+ */
+public class PainterCheck {
+    // Reads the camera, paints white, turns right, halts
+    private static final long[] PROGRAM = { 3, 100, 104, 1, 104, 1, 99 };
+
+    public static void main(String args[]) {
+        for (boolean compiled : new boolean[] { false, true }) {
+            Painter painter = new Painter(PROGRAM, compiled);
+            String message = capture(painter);
+            String name = compiled ? "Compiled" : "Interpreted";
+            System.out.printf("%s: %d panel(s) painted, message \"%s\"%n", name, painter.getPaintedPanelCount(),
+                    message);
+            if (painter.getPaintedPanelCount() != 1 || !message.equals("* ")) {
+                throw new RuntimeException(name + " robot painted after its program halted");
+            }
+        }
+    }
+
+    /**
+     * Runs `painter`.
+     *
+     * @return the message it painted, its lines separated by '/'.
+     */
+    private static String capture(Painter painter) {
+        PrintStream console = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true));
+        try {
+            painter.run();
+            printed.reset();
+            painter.printPaintedMessage();
+        } finally {
+            System.setOut(console);
+        }
+
+        return String.join("/", printed.toString().split(System.lineSeparator()));
+    }
+}
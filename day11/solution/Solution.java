@@ -1,33 +1,57 @@
 package solution;
 
-import java.util.Arrays;
+import java.nio.file.Paths;
+
+import intcode.InputLog;
+import intcode.Parser;
 
 public class Solution {
+    // Run with -Dintcode.compiled=true to use CompiledIntcode
+    private static final boolean COMPILED = Boolean.getBoolean("intcode.compiled");
+    // Run with -Dintcode.record=<file> to save the colors the camera reads, into
+    // <file>.part1 and <file>.part2, and with -Dintcode.replay=<file> to replay
+    // them instead of looking them up
+    private static final String RECORD = System.getProperty("intcode.record");
+    private static final String REPLAY = System.getProperty("intcode.replay");
+
     public static void main(String args[]) throws Exception {
         if (args.length < 1) {
             throw new RuntimeException("Missing puzzle input file.");
         }
 
         String inputFilePath = args[0];
-        String[] strInstructionArray = Parser.parseInputFile(inputFilePath);
-        long[] instructionArray = Arrays.asList(strInstructionArray).stream().mapToLong(Long::parseLong).toArray();
+        long[] instructionArray = Parser.loadProgram(inputFilePath);
 
         solvePart1(instructionArray);
         solvePart2(instructionArray);
     }
 
-    private static void solvePart1(long[] instructionArray) {
-        Painter painter = new Painter(instructionArray);
-        painter.run();
+    private static void solvePart1(long[] instructionArray) throws Exception {
+        Painter painter = new Painter(instructionArray, COMPILED);
+        paint(painter, ".part1");
         System.out.println("Part 1: " + painter.getPaintedPanelCount());
     }
 
-    private static void solvePart2(long[] instructionArray) {
-        Painter painter = new Painter(instructionArray);
+    private static void solvePart2(long[] instructionArray) throws Exception {
+        Painter painter = new Painter(instructionArray, COMPILED);
         painter.setFirstPanelWhite();
-        painter.run();
+        paint(painter, ".part2");
         
         System.out.println("Part 2:");
         painter.printPaintedMessage();
     }
+
+    private static void paint(Painter painter, String logSuffix) throws Exception {
+        InputLog log = RECORD != null ? new InputLog() : null;
+        painter.setInputLog(log);
+        if (REPLAY != null) {
+            painter.replay(InputLog.load(Paths.get(REPLAY + logSuffix)));
+        } else {
+            painter.run();
+        }
+
+        if (log != null) {
+            log.save(Paths.get(RECORD + logSuffix));
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package solution;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a score displayed by the arcade cabinet.
+ */
+@Name("intcode.day13.Score")
+@Label("Arcade Score Update")
+@Category({ "Intcode", "Devices" })
+class ScoreEvent extends Event {
+    @Label("Score")
+    int score;
+
+    @Label("Blocks Left")
+    int blocksLeft;
+}
@@ -1,7 +1,14 @@
 package solution;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+
+import intcode.Checkpoint;
+import intcode.CompiledIntcode;
+import intcode.InputLog;
+import intcode.Intcode;
 
 public class Screen {
     // Tile IDs for each element type
@@ -19,14 +26,35 @@ public class Screen {
     private static final int JSTICK_NEUTRAL = 0;
     private static final int JSTICK_RIGHT = 1;
 
+    // Number of screen updates between two checkpoints
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
     private boolean isGameFinished;
     private Intcode mIntcode;
     private HashMap<Position, Integer> mTileIds;
     private Position paddlePos, ballPos;
     private int mScore;
+    // (x, y, tile ID) or score output by the program
+    private final long[] mOutputs = new long[3];
+    private int mOutputIndex;
 
     public Screen(long[] instructionArray) {
-        mIntcode = new Intcode(instructionArray, null);
+        this(instructionArray, false);
+    }
+
+    /**
+     * @param compiled run the program with CompiledIntcode instead of the
+     *                 interpreter.
+     */
+    public Screen(long[] instructionArray, boolean compiled) {
+        this(compiled ? new CompiledIntcode(instructionArray, null) : new Intcode(instructionArray, null));
+    }
+
+    /**
+     * @param intcode the arcade cabinet's computer, e.g. forked from another one.
+     */
+    public Screen(Intcode intcode) {
+        mIntcode = intcode;
         mTileIds = new HashMap<>();
         mScore = 0;
         isGameFinished = false; // when there are no block left
@@ -37,11 +65,8 @@ public class Screen {
      * is set to 1).
      */
     public void startUp() {
-        while (!mIntcode.isHalt()) {
-            int xPos = (int) mIntcode.runUntilOutput();
-            int yPos = (int) mIntcode.runUntilOutput();
-            int value = (int) mIntcode.runUntilOutput();
-            this.update(new Position(xPos, yPos), value);
+        while (mIntcode.runUntilOutputs(mOutputs, 3) == Intcode.Status.OUTPUT) {
+            this.update(new Position((int) mOutputs[0], (int) mOutputs[1]), (int) mOutputs[2]);
         }
     }
 
@@ -50,13 +75,86 @@ public class Screen {
      * set to 2).
      */
     public void startUpAndPlay() {
+        mIntcode.setInputSupplier(this::joystickInput);
         while (!(mIntcode.isHalt() || isGameFinished)) {
-            updateInput();
+            playFrame();
+        }
+    }
 
-            int xPos = (int) mIntcode.runUntilOutput();
-            int yPos = (int) mIntcode.runUntilOutput();
-            int value = (int) mIntcode.runUntilOutput();
-            this.update(new Position(xPos, yPos), value);
+    /**
+     * Same as startUpAndPlay(), but resumes the game saved in `checkpoint` if any,
+     * and saves it there every `CHECKPOINT_INTERVAL` screen updates.
+     */
+    public void startUpAndPlay(Checkpoint checkpoint) throws IOException {
+        mIntcode.setInputSupplier(this::joystickInput);
+        long[] savedScreen = checkpoint.restore(mIntcode);
+        if (savedScreen != null) {
+            restoreScreen(savedScreen);
+        }
+
+        int updateCount = 0;
+        while (!(mIntcode.isHalt() || isGameFinished)) {
+            playFrame();
+            if (++updateCount % CHECKPOINT_INTERVAL == 0) {
+                checkpoint.save(mIntcode, saveScreen());
+            }
+        }
+    }
+
+    /**
+     * Plays the game again with the joystick moves of `log`, recorded by
+     * setting it as the input log of the computer of a game played from the
+     * same state. The moves are not computed, and the program runs in one go.
+     * Only the score is kept: the tiles are not drawn, so countTileNumber() and
+     * GUI() do not see them. Throws if the program asks for more moves than the
+     * log holds, i.e. the log does not match the game.
+     */
+    public void replay(InputLog log) {
+        log.replay(mIntcode);
+        mOutputIndex = 0;
+        Intcode.Status status = mIntcode.run(output -> {
+            mOutputs[mOutputIndex++] = output;
+            if (mOutputIndex == 3) {
+                mOutputIndex = 0;
+                if (mOutputs[0] == SCORE_POSITION.x && mOutputs[1] == SCORE_POSITION.y) {
+                    mScore = (int) mOutputs[2];
+                }
+            }
+        });
+        if (status != Intcode.Status.HALTED) {
+            throw new RuntimeException("Input log too short for the game (" + log.size() + " moves)");
+        }
+    }
+
+    private void playFrame() {
+        if (mIntcode.runUntilOutputs(mOutputs, 3) == Intcode.Status.OUTPUT) {
+            this.update(new Position((int) mOutputs[0], (int) mOutputs[1]), (int) mOutputs[2]);
+        }
+    }
+
+    /**
+     * @return the score followed by x, y and tile ID of every tile.
+     */
+    private long[] saveScreen() {
+        long[] screen = new long[1 + 3 * mTileIds.size()];
+        screen[0] = mScore;
+        int i = 1;
+        for (Map.Entry<Position, Integer> tile : mTileIds.entrySet()) {
+            screen[i++] = tile.getKey().x;
+            screen[i++] = tile.getKey().y;
+            screen[i++] = tile.getValue();
+        }
+
+        return screen;
+    }
+
+    private void restoreScreen(long[] screen) {
+        mTileIds.clear();
+        paddlePos = null;
+        ballPos = null;
+        mScore = (int) screen[0];
+        for (int i = 1; i < screen.length; i += 3) {
+            this.update(new Position((int) screen[i], (int) screen[i + 1]), (int) screen[i + 2]);
         }
     }
 
@@ -128,11 +226,26 @@ public class Screen {
     private void update(Position position, int value) {
         if (position.equals(SCORE_POSITION)) {
             mScore = value;
-            if (countTileNumber(TILE_ID_BLOCK) == 0) {
+            int blocksLeft = countTileNumber(TILE_ID_BLOCK);
+            if (blocksLeft == 0) {
                 isGameFinished = true;
             }
+
+            ScoreEvent event = new ScoreEvent();
+            if (event.shouldCommit()) {
+                event.score = value;
+                event.blocksLeft = blocksLeft;
+                event.commit();
+            }
         } else {
             mTileIds.put(position.clone(), value);
+            TileEvent event = new TileEvent();
+            if (event.shouldCommit()) {
+                event.x = position.x;
+                event.y = position.y;
+                event.tileId = value;
+                event.commit();
+            }
 
             // Track position of paddle and ball
             if (value == TILE_ID_PADDLE) {
@@ -144,18 +257,14 @@ public class Screen {
     }
 
     /**
-     * Update desired input based on relative position between paddle and ball.
+     * @return the joystick input moving the paddle toward the ball, asked by the
+     *         program when it reads the joystick.
      */
-    private void updateInput() {
-        if (paddlePos == null || ballPos == null) {
-            return;
-        }
-        if (paddlePos.x > ballPos.x) {
-            mIntcode.setDefaultInput(JSTICK_LEFT);
-        } else if (paddlePos.x == ballPos.x) {
-            mIntcode.setDefaultInput(JSTICK_NEUTRAL);
-        } else {
-            mIntcode.setDefaultInput(JSTICK_RIGHT);
+    private long joystickInput() {
+        if (paddlePos == null || ballPos == null || paddlePos.x == ballPos.x) {
+            return JSTICK_NEUTRAL;
         }
+
+        return paddlePos.x > ballPos.x ? JSTICK_LEFT : JSTICK_RIGHT;
     }
 }
\ No newline at end of file
@@ -1,31 +1,96 @@
 package solution;
 
-import java.util.Arrays;
+import java.nio.file.Paths;
+
+import intcode.Checkpoint;
+import intcode.CompiledIntcode;
+import intcode.InputLog;
+import intcode.InstrumentedIntcode;
+import intcode.Intcode;
+import intcode.Parser;
+import intcode.Trace;
 
 public class Solution {
+    // Run with -Dintcode.compiled=true to use CompiledIntcode
+    private static final boolean COMPILED = Boolean.getBoolean("intcode.compiled");
+    // Run with -Dintcode.checkpoint=<file> to save part 2's game and resume it
+    private static final String CHECKPOINT = System.getProperty("intcode.checkpoint");
+    // Run with -Dintcode.stats=true to print what each part executed
+    private static final boolean STATS = Boolean.getBoolean("intcode.stats");
+    // Run with -Dintcode.profile=true to print the hottest addresses and blocks
+    private static final boolean PROFILE = Boolean.getBoolean("intcode.profile");
+    private static final int PROFILE_LIMIT = 10;
+    // Run with -Dintcode.trace=<N> to print the last N instructions of a part
+    // that fails
+    private static final int TRACE = Integer.getInteger("intcode.trace", 0);
+    // Run with -Dintcode.record=<file> to save the joystick moves of part 2, and
+    // with -Dintcode.replay=<file> to replay them instead of computing them
+    private static final String RECORD = System.getProperty("intcode.record");
+    private static final String REPLAY = System.getProperty("intcode.replay");
+
     public static void main(String args[]) throws Exception {
         if (args.length < 1) {
             throw new RuntimeException("Missing puzzle input file.");
         }
 
         String inputFilePath = args[0];
-        String[] strInstructionArray = Parser.parseInputFile(inputFilePath);
-        long[] instructionArray = Arrays.asList(strInstructionArray).stream().mapToLong(Long::parseLong).toArray();
+        long[] instructionArray = Parser.loadProgram(inputFilePath);
 
-        solvePart1(instructionArray);
-        solvePart2(instructionArray);
+        // Both parts fork the same freshly loaded cabinet
+        Intcode arcade = COMPILED ? new CompiledIntcode(instructionArray, null)
+                : STATS || PROFILE ? new InstrumentedIntcode(instructionArray, null)
+                : new Intcode(instructionArray, null);
+        solvePart1(traced(arcade.fork()));
+        solvePart2(traced(arcade.fork()));
     }
 
-    private static void solvePart1(long[] instructionArray) {
-        Screen screen = new Screen(instructionArray);
+    private static void solvePart1(Intcode arcade) {
+        Screen screen = new Screen(arcade);
         screen.startUp();
         System.out.println("Part 1: " + screen.countTileNumber(2));
+        printStats(arcade);
     }
 
-    private static void solvePart2(long[] instructionArray) {
-        instructionArray[0] = 2;
-        Screen screen = new Screen(instructionArray);
-        screen.startUpAndPlay();
+    private static void solvePart2(Intcode arcade) throws Exception {
+        arcade.setMemoryAt(0, 2); // play for free
+        Screen screen = new Screen(arcade);
+        InputLog log = RECORD != null ? new InputLog() : null;
+        arcade.setInputLog(log);
+        if (REPLAY != null) {
+            screen.replay(InputLog.load(Paths.get(REPLAY)));
+        } else if (CHECKPOINT == null) {
+            screen.startUpAndPlay();
+        } else {
+            try (Checkpoint checkpoint = new Checkpoint(Paths.get(CHECKPOINT))) {
+                screen.startUpAndPlay(checkpoint);
+            }
+        }
+        if (log != null) {
+            log.save(Paths.get(RECORD));
+        }
         System.out.println("Part 2: " + screen.getScore());
+        printStats(arcade);
+    }
+
+    private static Intcode traced(Intcode arcade) {
+        if (TRACE > 0) {
+            arcade.setTrace(new Trace(TRACE));
+        }
+        return arcade;
+    }
+
+    private static void printStats(Intcode arcade) {
+        if (!(arcade instanceof InstrumentedIntcode)) {
+            return;
+        }
+
+        InstrumentedIntcode instrumented = (InstrumentedIntcode) arcade;
+        if (STATS) {
+            System.err.print(instrumented.getReport());
+        }
+        if (PROFILE) {
+            System.err.print(instrumented.getProfileReport(PROFILE_LIMIT));
+            System.err.print(instrumented.getCallGraph().getReport(PROFILE_LIMIT));
+        }
     }
 }
@@ -0,0 +1,23 @@
+package solution;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a tile drawn by the arcade cabinet.
+ */
+@Name("intcode.day13.Tile")
+@Label("Arcade Tile Update")
+@Category({ "Intcode", "Devices" })
+class TileEvent extends Event {
+    @Label("X")
+    int x;
+
+    @Label("Y")
+    int y;
+
+    @Label("Tile ID")
+    int tileId;
+}
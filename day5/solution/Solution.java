@@ -2,6 +2,9 @@ package solution;
 
 import java.lang.RuntimeException;
 
+import intcode.Intcode;
+import intcode.Parser;
+
 public class Solution {
     public static void main(String args[]) throws Exception {
         if (args.length < 2) {
@@ -9,9 +12,17 @@ public class Solution {
         }
 
         String inputFilePath = args[0];
-        int inputID = Integer.parseInt(args[1]);
-        String[] instructionArray = Parser.parseInputFile(inputFilePath);
-        Intcode intcode = new Intcode(instructionArray, inputID);
-        intcode.run();
+        long inputID = Long.parseLong(args[1]);
+        long[] instructionArray = Parser.loadProgram(inputFilePath);
+
+        // The diagnostic program reads the ID once, then prints every test result
+        Intcode intcode = new Intcode(instructionArray, new long[] { inputID });
+        while (true) {
+            long output = intcode.runUntilOutput();
+            if (intcode.isHalt()) {
+                break;
+            }
+            System.out.println(output);
+        }
     }
 }
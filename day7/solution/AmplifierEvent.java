@@ -0,0 +1,23 @@
+package solution;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning the run of one amplifier in series.
+ */
+@Name("intcode.day7.Amplifier")
+@Label("Amplifier Run")
+@Category({ "Intcode", "Devices" })
+class AmplifierEvent extends Event {
+    @Label("Phase Setting")
+    int phaseSetting;
+
+    @Label("Input Signal")
+    long inputSignal;
+
+    @Label("Output Signal")
+    long outputSignal;
+}
@@ -1,56 +1,163 @@
 package solution;
 
-import java.util.Vector;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import intcode.Channel;
+import intcode.Intcode;
+import intcode.Network;
 
 public class AmplifierSystem {
-    public static final int INPUT_VALUE = 0;
+    public static final long INPUT_VALUE = 0;
 
-    private int[] mInstructionArray;
+    // Amplifiers are forked from this one, which never runs, so that several
+    // threads can run the system at once
+    private Intcode mPrototype;
     private int mAmplifierNumber;
 
-    AmplifierSystem(int[] instructionArray, int amplifierNumber) {
-        mInstructionArray = instructionArray;
+    // Signal after each prefix of phase settings given to `run`, keyed by phase
+    // setting from the input signal, since it only depends on that prefix.
+    // Prefixes missing fewer than 2 settings are not kept: in a permutation
+    // they determine the rest, so no other call could reuse them
+    private final PrefixNode mSignals;
+    private final LongAdder mAmplifierRuns;
+    private final LongAdder mSavedAmplifierRuns;
+
+    AmplifierSystem(long[] instructionArray, int amplifierNumber) {
+        mPrototype = new Intcode(instructionArray, null);
         mAmplifierNumber = amplifierNumber;
+        mSignals = new PrefixNode(INPUT_VALUE, amplifierNumber > 2);
+        mAmplifierRuns = new LongAdder();
+        mSavedAmplifierRuns = new LongAdder();
     }
 
-    public int run(int[] phaseSettings) {
+    /**
+     * Runs the amplifiers in series. The signals after the phase settings this
+     * system has already seen as a prefix are reused rather than computed again.
+     */
+    public long run(int[] phaseSettings) {
         if (phaseSettings.length != mAmplifierNumber) {
             throw new RuntimeException("Invalid length of phase settings.");
         }
 
-        int signal = INPUT_VALUE;
-        for (int i = 0; i < mAmplifierNumber; i++) {
-            int[] amplifierInputs = { phaseSettings[i], signal };
-            Intcode amplifier = new Intcode(mInstructionArray, amplifierInputs);
-            signal = amplifier.run();
+        PrefixNode node = mSignals;
+        int cachedLength = Math.max(mAmplifierNumber - 2, 0);
+        for (int i = 0; i < cachedLength; i++) {
+            PrefixNode previous = node;
+            node = previous.mNext.get(phaseSettings[i]);
+            if (node != null) {
+                mSavedAmplifierRuns.increment();
+            } else {
+                // Run outside of the map, which would block the other threads
+                // on its bin meanwhile. Threads racing for the same prefix may
+                // both run it; the first signal stored is kept
+                PrefixNode computed = new PrefixNode(runAmplifier(phaseSettings[i], previous.mSignal),
+                        i + 1 < cachedLength);
+                node = previous.mNext.putIfAbsent(phaseSettings[i], computed);
+                if (node == null) {
+                    node = computed;
+                }
+            }
+        }
+
+        long signal = node.mSignal;
+        for (int i = cachedLength; i < mAmplifierNumber; i++) {
+            signal = runAmplifier(phaseSettings[i], signal);
         }
 
         return signal;
     }
 
-    public int runWithFeedback(int[] phaseSettings) {
+    /**
+     * @return number of amplifier programs `run` has executed.
+     */
+    public long getAmplifierRunCount() {
+        return mAmplifierRuns.sum();
+    }
+
+    /**
+     * @return number of amplifier programs `run` did not have to execute thanks
+     *         to signals computed for a previous call.
+     */
+    public long getSavedAmplifierRunCount() {
+        return mSavedAmplifierRuns.sum();
+    }
+
+    private long runAmplifier(int phaseSetting, long signal) {
+        mAmplifierRuns.increment();
+        AmplifierEvent event = new AmplifierEvent();
+        event.begin();
+        Intcode amplifier = mPrototype.fork();
+        amplifier.provideInput(new long[] { phaseSetting, signal });
+        long output = amplifier.run();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.phaseSetting = phaseSetting;
+            event.inputSignal = signal;
+            event.outputSignal = output;
+            event.commit();
+        }
+
+        return output;
+    }
+
+    public long runWithFeedback(int[] phaseSettings) {
         if (phaseSettings.length != mAmplifierNumber) {
             throw new RuntimeException("Invalid length of phase settings.");
         }
 
-        // Initialize the amplifiers for the first time
-        Vector<Intcode> amplifiers = new Vector<>();
+        FeedbackLoopEvent event = new FeedbackLoopEvent();
+        event.begin();
+
+        // Channel i feeds amplifier i, and the last amplifier feeds the first one
+        Channel[] channels = new Channel[mAmplifierNumber];
         for (int i = 0; i < mAmplifierNumber; i++) {
-            // Provide phase setting at initialization
-            amplifiers.add(new Intcode(mInstructionArray.clone(), new int[] { phaseSettings[i] }));
-        }
-
-        int signal = INPUT_VALUE;
-        int amplifierIdx = 0;
-        while (true) {
-            Intcode amplifier = amplifiers.get(amplifierIdx);
-            amplifier.provideInput(new int[] { signal });
-            signal = amplifier.runUntilOutput();
-            if (amplifierIdx == mAmplifierNumber - 1 && amplifier.getCurrentOpcode() == Intcode.OP_HALT) {
-                return signal;
-            }
+            channels[i] = new Channel();
+            channels[i].send(phaseSettings[i]);
+        }
+        channels[0].send(INPUT_VALUE);
+
+        Network network = new Network();
+        for (int i = 0; i < mAmplifierNumber; i++) {
+            network.connect(mPrototype.fork(), channels[i], channels[(i + 1) % mAmplifierNumber]);
+        }
+        try {
+            network.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+
+        // The first amplifier has halted before the last signal came back. A
+        // failing amplifier makes `await` throw
+        if (channels[0].isEmpty()) {
+            throw new RuntimeException("No signal came back from the last amplifier for "
+                    + Arrays.toString(phaseSettings));
+        }
+        long signal = channels[0].poll();
+        while (!channels[0].isEmpty()) {
+            signal = channels[0].poll();
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.phaseSettings = Arrays.toString(phaseSettings);
+            event.signal = signal;
+            event.commit();
+        }
+
+        return signal;
+    }
+
+    private static class PrefixNode {
+        final long mSignal;
+        // Null for the nodes of the longest prefixes kept, which have no next
+        final ConcurrentHashMap<Integer, PrefixNode> mNext;
 
-            amplifierIdx = (amplifierIdx + 1) % mAmplifierNumber;
+        PrefixNode(long signal, boolean hasNext) {
+            mSignal = signal;
+            mNext = hasNext ? new ConcurrentHashMap<>() : null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package solution;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning a run of the amplifiers in a feedback loop.
+ */
+@Name("intcode.day7.FeedbackLoop")
+@Label("Amplifier Feedback Loop")
+@Category({ "Intcode", "Devices" })
+class FeedbackLoopEvent extends Event {
+    @Label("Phase Settings")
+    String phaseSettings;
+
+    @Label("Thruster Signal")
+    long signal;
+}
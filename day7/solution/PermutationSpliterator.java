@@ -0,0 +1,141 @@
+package solution;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Lazily generates the permutations of distinct values, in lexicographic order,
+ * so that they can be streamed in parallel without being stored.
+ *
+ * Splitting halves the range of permutation ranks. The first permutation of a
+ * range is computed from its rank, and each next one from the previous one in
+ * amortized constant time.
+ */
+class PermutationSpliterator implements Spliterator<int[]> {
+    private final int[] mValues;
+    // Rank of the next permutation, and end of the range
+    private long mNext;
+    private final long mEnd;
+    // Last permutation supplied, or null if none yet
+    private int[] mCurrent;
+
+    /**
+     * @param values distinct values, at most 20 of them.
+     */
+    PermutationSpliterator(int[] values) {
+        mValues = values.clone();
+        Arrays.sort(mValues);
+        for (int i = 1; i < mValues.length; i++) {
+            if (mValues[i] == mValues[i - 1]) {
+                throw new RuntimeException("Duplicate value (" + mValues[i] + ") to permute.");
+            }
+        }
+        if (mValues.length > 20) {
+            throw new RuntimeException("Too many values to permute (" + mValues.length + ").");
+        }
+
+        mNext = 0;
+        mEnd = factorial(mValues.length);
+    }
+
+    private PermutationSpliterator(int[] values, long next, long end, int[] current) {
+        mValues = values;
+        mNext = next;
+        mEnd = end;
+        mCurrent = current;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+        if (mNext >= mEnd) {
+            return false;
+        }
+
+        if (mCurrent == null) {
+            mCurrent = permutation(mNext);
+        } else {
+            nextPermutation(mCurrent);
+        }
+        mNext++;
+        action.accept(mCurrent.clone());
+        return true;
+    }
+
+    @Override
+    public Spliterator<int[]> trySplit() {
+        if (mEnd - mNext < 2) {
+            return null;
+        }
+
+        // The first half continues from the current permutation
+        long middle = mNext + (mEnd - mNext) / 2;
+        Spliterator<int[]> prefix = new PermutationSpliterator(mValues, mNext, middle, mCurrent);
+        mNext = middle;
+        mCurrent = null;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return mEnd - mNext;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * @return the permutation of the given lexicographic rank.
+     */
+    private int[] permutation(long rank) {
+        int n = mValues.length;
+        int[] remaining = mValues.clone();
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            long blockSize = factorial(n - 1 - i);
+            int index = (int) (rank / blockSize);
+            rank %= blockSize;
+            permutation[i] = remaining[index];
+            System.arraycopy(remaining, index + 1, remaining, index, n - 1 - i - index);
+        }
+
+        return permutation;
+    }
+
+    /**
+     * Rearranges `permutation` into the next one in lexicographic order, which
+     * must exist.
+     */
+    private static void nextPermutation(int[] permutation) {
+        int i = permutation.length - 2;
+        while (permutation[i] > permutation[i + 1]) {
+            i--;
+        }
+        int j = permutation.length - 1;
+        while (permutation[j] < permutation[i]) {
+            j--;
+        }
+
+        swap(permutation, i, j);
+        for (int k = i + 1, l = permutation.length - 1; k < l; k++, l--) {
+            swap(permutation, k, l);
+        }
+    }
+
+    private static long factorial(int n) {
+        long result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+
+        return result;
+    }
+
+    private static void swap(int[] arr, int i, int j) {
+        int temp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = temp;
+    }
+}
@@ -1,28 +1,60 @@
 package solution;
 
-import java.util.Arrays;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import intcode.InstrumentedIntcode;
+import intcode.Intcode;
+import intcode.Parser;
 
 public class Solution {
+    // Run with -Dintcode.stats=true to print what each part executed
+    private static final boolean STATS = Boolean.getBoolean("intcode.stats");
+    // Run with -Dintcode.profile=true to print the hottest addresses and blocks
+    private static final boolean PROFILE = Boolean.getBoolean("intcode.profile");
+    private static final int PROFILE_LIMIT = 10;
+    // Run with -Dintcode.callgraph=<file> to write the guest call stacks of both
+    // parts there, in collapsed-stack format for flame graphs
+    private static final String CALL_GRAPH = System.getProperty("intcode.callgraph");
+
     public static void main(String args[]) throws Exception {
         if (args.length < 1) {
             throw new RuntimeException("Missing puzzle input file.");
         }
 
         String inputFilePath = args[0];
-        String[] strInstructionArray = Parser.parseInputFile(inputFilePath);
-        long[] instructionArray = Arrays.asList(strInstructionArray).stream().mapToLong(Long::parseLong).toArray();
+        long[] instructionArray = Parser.loadProgram(inputFilePath);
 
         System.out.println("Part 1 solution: " + solvePart1(instructionArray, new long[] { 1 }));
         System.out.println("Part 2 solution: " + solvePart2(instructionArray, new long[] { 2 }));
     }
 
-    private static long solvePart1(long[] instructionArray, long[] inputs) {
-        Intcode intcode = new Intcode(instructionArray, inputs);
-        return intcode.run();
+    private static long solvePart1(long[] instructionArray, long[] inputs) throws IOException {
+        return run(instructionArray, inputs, "part1");
+    }
+
+    private static long solvePart2(long[] instructionArray, long[] inputs) throws IOException {
+        return run(instructionArray, inputs, "part2");
     }
 
-    private static long solvePart2(long[] instructionArray, long[] inputs) {
-        Intcode intcode = new Intcode(instructionArray, inputs);
-        return intcode.run();
+    private static long run(long[] instructionArray, long[] inputs, String part) throws IOException {
+        Intcode intcode = STATS || PROFILE || CALL_GRAPH != null ? new InstrumentedIntcode(instructionArray, inputs)
+                : new Intcode(instructionArray, inputs);
+        long output = intcode.run();
+        if (STATS) {
+            System.err.print(((InstrumentedIntcode) intcode).getReport());
+        }
+        if (PROFILE) {
+            System.err.print(((InstrumentedIntcode) intcode).getProfileReport(PROFILE_LIMIT));
+            System.err.print(((InstrumentedIntcode) intcode).getCallGraph().getReport(PROFILE_LIMIT));
+        }
+        if (CALL_GRAPH != null) {
+            // Part 1 starts the file, part 2 appends to it
+            try (FileWriter writer = new FileWriter(CALL_GRAPH, !part.equals("part1"))) {
+                ((InstrumentedIntcode) intcode).getCallGraph().writeCollapsedStacks(writer, part);
+            }
+        }
+
+        return output;
     }
-}
\ No newline at end of file
+}
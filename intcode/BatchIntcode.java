@@ -0,0 +1,522 @@
+package intcode;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Runs many instances of one program in lockstep, e.g. to try many inputs at
+ * once. The state is kept per field rather than per instance: each memory cell
+ * is a column with the value of that cell in every instance, so an instruction
+ * that all instances execute with the same operand cells runs as one loop over
+ * contiguous columns, in SIMD vectors of the Vector API. Like the days that
+ * use it, it has to be compiled and run with `--add-modules
+ * jdk.incubator.vector`.
+ *
+ * Each step executes the instruction at the lowest position any instance is
+ * at, for all the instances at that position with the same instruction there.
+ * Instances that took different branches therefore wait for each other and
+ * run together again once their paths meet.
+ *
+ * As in Memory, columns of low addresses are found through an array and the
+ * others (e.g. far relative-mode writes) through a hash table keyed by
+ * address, so the memory used scales with the cells written rather than with
+ * the highest address.
+ */
+public final class BatchIntcode {
+    // Cells below this address, or below the end of the program, are kept in
+    // `mColumns`
+    private static final int DIRECT_CELLS = 1 << 16;
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final LongVector ZEROS = LongVector.zero(SPECIES);
+    private static final LongVector ONES = LongVector.broadcast(SPECIES, 1L);
+
+    private final int mInstances;
+    private final int mDirectCells;
+    // Maximum number of columns, so that the cells of all the instances stay
+    // within the memory limit of a computer
+    private final long mColumnLimit;
+    private long mColumnCount;
+    // Value of each cell in every instance, indexed by cell then instance, or
+    // null while the cell is 0 in every instance
+    private long[][] mColumns;
+    // Cells written since loading. The others still hold the program, which is
+    // the same in every instance. Far columns are all written
+    private boolean[] mWrittenCells;
+    private final FarColumns mFarColumns;
+
+    private final int[] mPositions;
+    private final long[] mRelativeBases;
+    // Whether every instance has the same relative base
+    private boolean mBasesAgree;
+    private final boolean[] mHalted;
+    // Instances stopped at an INPUT until they are given one
+    private final boolean[] mWaiting;
+    private final LongQueue[] mInputs;
+    private final LongQueue[] mOutputs;
+
+    // Instances executing the current instruction, and their operands
+    private final int[] mLanes;
+    private final long[] mFirst;
+    private final long[] mSecond;
+    private final long[] mDestinations;
+
+    public BatchIntcode(long[] instructionArray, int instances) {
+        if (instances < 1) {
+            throw new RuntimeException("Invalid number of instances (" + instances + ")");
+        }
+
+        mInstances = instances;
+        mDirectCells = Math.max(instructionArray.length, DIRECT_CELLS);
+        mColumnLimit = Math.max(instructionArray.length, Memory.DEFAULT_LIMIT / instances);
+        mColumns = new long[Math.max(instructionArray.length, 1)][];
+        mWrittenCells = new boolean[mColumns.length];
+        mFarColumns = new FarColumns();
+        for (int cell = 0; cell < instructionArray.length; cell++) {
+            if (instructionArray[cell] != 0) {
+                mColumns[cell] = new long[instances];
+                Arrays.fill(mColumns[cell], instructionArray[cell]);
+                mColumnCount++;
+            }
+        }
+
+        mPositions = new int[instances];
+        mRelativeBases = new long[instances];
+        mBasesAgree = true;
+        mHalted = new boolean[instances];
+        mWaiting = new boolean[instances];
+        mInputs = new LongQueue[instances];
+        mOutputs = new LongQueue[instances];
+        for (int i = 0; i < instances; i++) {
+            mInputs[i] = new LongQueue();
+            mOutputs[i] = new LongQueue();
+        }
+
+        mLanes = new int[instances];
+        mFirst = new long[instances];
+        mSecond = new long[instances];
+        mDestinations = new long[instances];
+    }
+
+    public int getInstanceCount() {
+        return mInstances;
+    }
+
+    public void provideInput(int instance, long[] inputs) {
+        mInputs[instance].addAll(inputs, 0, inputs.length);
+        mWaiting[instance] = false;
+    }
+
+    /**
+     * @return every output of `instance` so far.
+     */
+    public long[] getOutputs(int instance) {
+        return mOutputs[instance].toArray();
+    }
+
+    public boolean isHalt(int instance) {
+        return mHalted[instance];
+    }
+
+    /**
+     * Runs every instance until it halts or executes an INPUT with no input left.
+     */
+    public void run() {
+        while (true) {
+            // Self-modified instances may hold another instruction there
+            int position = Integer.MAX_VALUE;
+            int count = 0;
+            long instruction = 0;
+            for (int i = 0; i < mInstances; i++) {
+                if (mHalted[i] || mWaiting[i] || mPositions[i] > position) {
+                    continue;
+                }
+                long value = read(mPositions[i], i);
+                if (mPositions[i] < position) {
+                    position = mPositions[i];
+                    instruction = value;
+                    count = 0;
+                }
+                if (value == instruction) {
+                    mLanes[count++] = i;
+                }
+            }
+            if (count == 0) {
+                return;
+            }
+
+            execute(position, instruction, count);
+        }
+    }
+
+    private void execute(int position, long instruction, int count) {
+        int decoded = Operation.pack(instruction);
+        int opcode = Operation.opcode(decoded);
+        int mode0 = Operation.mode(decoded, 0);
+        int mode1 = Operation.mode(decoded, 1);
+        int mode2 = Operation.mode(decoded, 2);
+
+        switch (opcode) {
+            case Intcode.OP_ADD:
+            case Intcode.OP_MULTIPLY:
+            case Intcode.OP_LESSTHAN:
+            case Intcode.OP_EQUALS:
+                if (!executeOnColumns(position, opcode, mode0, mode1, mode2, count)) {
+                    fetch(mFirst, position + 1, mode0, count);
+                    fetch(mSecond, position + 2, mode1, count);
+                    fetchAddresses(mDestinations, position + 3, mode2, count);
+                    for (int k = 0; k < count; k++) {
+                        write(mDestinations[k], mLanes[k], apply(opcode, mFirst[k], mSecond[k]));
+                    }
+                }
+                advance(count, position + 4);
+                break;
+            case Intcode.OP_INPUT:
+                fetchAddresses(mDestinations, position + 1, mode0, count);
+                for (int k = 0; k < count; k++) {
+                    int lane = mLanes[k];
+                    if (mInputs[lane].isEmpty()) {
+                        mWaiting[lane] = true;
+                    } else {
+                        write(mDestinations[k], lane, mInputs[lane].poll());
+                        mPositions[lane] = position + 2;
+                    }
+                }
+                break;
+            case Intcode.OP_OUTPUT:
+                fetch(mFirst, position + 1, mode0, count);
+                for (int k = 0; k < count; k++) {
+                    mOutputs[mLanes[k]].add(mFirst[k]);
+                }
+                advance(count, position + 2);
+                break;
+            case Intcode.OP_JUMPIFTRUE:
+            case Intcode.OP_JUMPIFFALSE:
+                fetch(mFirst, position + 1, mode0, count);
+                for (int k = 0; k < count; k++) {
+                    // The target is only read by the lanes that jump, like Intcode
+                    int lane = mLanes[k];
+                    boolean jump = (mFirst[k] != 0) == (opcode == Intcode.OP_JUMPIFTRUE);
+                    mPositions[lane] = jump ? Intcode.toAddress(parameter(position + 2, mode1, lane), position)
+                            : position + 3;
+                }
+                break;
+            case Intcode.OP_RELATIVEBASEOFFSET:
+                fetch(mFirst, position + 1, mode0, count);
+                for (int k = 0; k < count; k++) {
+                    mRelativeBases[mLanes[k]] += mFirst[k];
+                }
+                mBasesAgree = true;
+                for (int i = 1; i < mInstances; i++) {
+                    mBasesAgree &= mRelativeBases[i] == mRelativeBases[0];
+                }
+                advance(count, position + 2);
+                break;
+            case Intcode.OP_HALT:
+                for (int k = 0; k < count; k++) {
+                    mHalted[mLanes[k]] = true;
+                }
+                break;
+            default:
+                throw new RuntimeException("Invalid instruction (" + instruction + ") at position " + position);
+        }
+    }
+
+    /**
+     * Executes an arithmetic or comparison instruction as vector operations
+     * over whole columns, if every instance runs it and its operands are the
+     * same cells in every instance, i.e. parameters read from cells no
+     * instance has written, in relative mode only if the relative bases agree.
+     *
+     * @return false if the instruction does not qualify.
+     */
+    private boolean executeOnColumns(int position, int opcode, int mode0, int mode1, int mode2, int count) {
+        boolean relative = mode0 == Intcode.MODE_RELATIVE || mode1 == Intcode.MODE_RELATIVE
+                || mode2 == Intcode.MODE_RELATIVE;
+        if (count < mInstances || (relative && !mBasesAgree) || isWritten(position + 1)
+                || isWritten(position + 2) || isWritten(position + 3)) {
+            return false;
+        }
+
+        // Copy the operands first, as the destination may be one of them
+        copyOperand(mFirst, position + 1, mode0);
+        copyOperand(mSecond, position + 2, mode1);
+        long[] first = mFirst;
+        long[] second = mSecond;
+        long[] destination = writableColumn(read(position + 3, 0)
+                + (mode2 == Intcode.MODE_RELATIVE ? mRelativeBases[0] : 0));
+        int vectorEnd = SPECIES.loopBound(mInstances);
+        for (int i = 0; i < vectorEnd; i += SPECIES.length()) {
+            LongVector a = LongVector.fromArray(SPECIES, first, i);
+            LongVector b = LongVector.fromArray(SPECIES, second, i);
+            LongVector result;
+            switch (opcode) {
+                case Intcode.OP_ADD:
+                    result = a.add(b);
+                    break;
+                case Intcode.OP_MULTIPLY:
+                    result = a.mul(b);
+                    break;
+                case Intcode.OP_LESSTHAN:
+                    result = ZEROS.blend(ONES, a.compare(VectorOperators.LT, b));
+                    break;
+                default:
+                    result = ZEROS.blend(ONES, a.compare(VectorOperators.EQ, b));
+                    break;
+            }
+            result.intoArray(destination, i);
+        }
+        for (int i = vectorEnd; i < mInstances; i++) {
+            destination[i] = apply(opcode, first[i], second[i]);
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies the value of a parameter in every instance, for a parameter cell no
+     * instance has written.
+     */
+    private void copyOperand(long[] target, int cell, int mode) {
+        long parameter = read(cell, 0);
+        if (mode == Intcode.MODE_IMMEDIATE) {
+            Arrays.fill(target, parameter);
+            return;
+        }
+        if (mode == Intcode.MODE_RELATIVE) {
+            parameter += mRelativeBases[0];
+        } else if (mode != Intcode.MODE_POSITION) {
+            throw new RuntimeException("Invalid parameter mode (" + mode + ") at position " + cell);
+        }
+
+        checkAddress(parameter, cell);
+        long[] column = column(parameter);
+        if (column == null) {
+            Arrays.fill(target, 0L);
+        } else {
+            System.arraycopy(column, 0, target, 0, mInstances);
+        }
+    }
+
+    private static long apply(int opcode, long first, long second) {
+        switch (opcode) {
+            case Intcode.OP_ADD:
+                return first + second;
+            case Intcode.OP_MULTIPLY:
+                return first * second;
+            case Intcode.OP_LESSTHAN:
+                return first < second ? 1 : 0;
+            default:
+                return first == second ? 1 : 0;
+        }
+    }
+
+    /**
+     * Reads the value of the parameter stored at `cell` for each running lane.
+     */
+    private void fetch(long[] target, int cell, int mode, int count) {
+        if (mode == Intcode.MODE_IMMEDIATE) {
+            long[] column = column(cell);
+            for (int k = 0; k < count; k++) {
+                target[k] = column == null ? 0 : column[mLanes[k]];
+            }
+            return;
+        }
+
+        if (mode != Intcode.MODE_POSITION && mode != Intcode.MODE_RELATIVE) {
+            throw new RuntimeException("Invalid parameter mode (" + mode + ") at position " + cell);
+        }
+
+        fetchAddresses(target, cell, mode, count);
+        for (int k = 0; k < count; k++) {
+            target[k] = read(target[k], mLanes[k]);
+        }
+    }
+
+    /**
+     * Reads the value of the parameter stored at `cell` for one lane.
+     */
+    private long parameter(int cell, int mode, int lane) {
+        long parameter = read(cell, lane);
+        switch (mode) {
+            case Intcode.MODE_POSITION:
+                return read(parameter, lane);
+            case Intcode.MODE_IMMEDIATE:
+                return parameter;
+            case Intcode.MODE_RELATIVE:
+                return read(parameter + mRelativeBases[lane], lane);
+            default:
+                throw new RuntimeException("Invalid parameter mode (" + mode + ") at position " + cell);
+        }
+    }
+
+    /**
+     * Reads the address the parameter stored at `cell` designates, for each
+     * running lane. As in Intcode, any mode but relative is taken as position
+     * mode.
+     */
+    private void fetchAddresses(long[] target, int cell, int mode, int count) {
+        long[] column = column(cell);
+        for (int k = 0; k < count; k++) {
+            int lane = mLanes[k];
+            target[k] = (column == null ? 0 : column[lane])
+                    + (mode == Intcode.MODE_RELATIVE ? mRelativeBases[lane] : 0);
+        }
+    }
+
+    private void advance(int count, int position) {
+        for (int k = 0; k < count; k++) {
+            mPositions[mLanes[k]] = position;
+        }
+    }
+
+    private long read(long address, int lane) {
+        checkAddress(address, mPositions[lane]);
+        long[] column = column(address);
+        return column == null ? 0 : column[lane];
+    }
+
+    /**
+     * @return the column of a cell, or null if it is 0 in every instance.
+     */
+    private long[] column(long address) {
+        if (address < mColumns.length) {
+            return mColumns[(int) address];
+        }
+        if (address < mDirectCells) {
+            return null;
+        }
+
+        int slot = mFarColumns.find(address);
+        return slot < 0 ? null : mFarColumns.mColumns[slot];
+    }
+
+    private void write(long address, int lane, long value) {
+        writableColumn(address)[lane] = value;
+    }
+
+    private boolean isWritten(int cell) {
+        if (cell < mWrittenCells.length) {
+            return mWrittenCells[cell];
+        }
+
+        return cell >= mDirectCells && mFarColumns.find(cell) >= 0;
+    }
+
+    /**
+     * @return the column of a cell about to be written, allocated if needed.
+     */
+    private long[] writableColumn(long address) {
+        checkAddress(address, -1);
+        if (address >= mDirectCells) {
+            int slot = mFarColumns.find(address);
+            if (slot < 0) {
+                long[] column = newColumn();
+                slot = mFarColumns.add(address);
+                mFarColumns.mColumns[slot] = column;
+            }
+            return mFarColumns.mColumns[slot];
+        }
+
+        int cell = (int) address;
+        if (cell >= mColumns.length) {
+            int length = Math.min(Math.max(cell + 1, mColumns.length * 2), mDirectCells);
+            mColumns = Arrays.copyOf(mColumns, length);
+            mWrittenCells = Arrays.copyOf(mWrittenCells, length);
+        }
+        if (mColumns[cell] == null) {
+            mColumns[cell] = newColumn();
+        }
+
+        mWrittenCells[cell] = true;
+        return mColumns[cell];
+    }
+
+    private long[] newColumn() {
+        if (mColumnCount >= mColumnLimit) {
+            throw new RuntimeException("Memory limit of " + mColumnLimit + " cells per instance exceeded");
+        }
+
+        mColumnCount++;
+        return new long[mInstances];
+    }
+
+    private static void checkAddress(long address, int position) {
+        if (address < 0) {
+            throw new RuntimeException("Invalid memory address (" + address + ") at position " + position);
+        }
+    }
+
+    /**
+     * Open-addressing hash table of the columns from `mDirectCells` up. Keys
+     * are never 0, which marks an empty slot.
+     */
+    private static final class FarColumns {
+        private static final int INITIAL_CAPACITY = 16;
+
+        long[] mKeys;
+        long[][] mColumns;
+        int mSize;
+
+        FarColumns() {
+            mKeys = new long[INITIAL_CAPACITY];
+            mColumns = new long[INITIAL_CAPACITY][];
+        }
+
+        /**
+         * @return the slot of `address`, or -1 if it is not in the table.
+         */
+        int find(long address) {
+            int mask = mKeys.length - 1;
+            for (int slot = hash(address) & mask;; slot = (slot + 1) & mask) {
+                if (mKeys[slot] == address) {
+                    return slot;
+                }
+                if (mKeys[slot] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * @return the new slot of `address`, which must not be in the table.
+         */
+        int add(long address) {
+            if (2 * (mSize + 1) > mKeys.length) {
+                grow();
+            }
+            mSize++;
+            return insert(address);
+        }
+
+        private int insert(long address) {
+            int mask = mKeys.length - 1;
+            int slot = hash(address) & mask;
+            while (mKeys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            mKeys[slot] = address;
+            return slot;
+        }
+
+        private void grow() {
+            long[] keys = mKeys;
+            long[][] columns = mColumns;
+            mKeys = new long[keys.length * 2];
+            mColumns = new long[keys.length * 2][];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    mColumns[insert(keys[i])] = columns[i];
+                }
+            }
+        }
+
+        private static int hash(long address) {
+            long h = address * 0x9e3779b97f4a7c15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,973 @@
+package intcode;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Translates the code of an Intcode program into a hidden class with a static
+ * method `run(CompiledIntcode, int pc)` that runs the program from `pc` until a
+ * callback on CompiledIntcode asks it to stop, and returns the new pc.
+ *
+ * Code is discovered by following control flow from the entry points, without
+ * falling through jumps that are always taken, except into the return address
+ * of a call; jumps to computed addresses leave the generated code when they
+ * land somewhere that was not discovered. Operands are baked into the bytecode as constants, except
+ * for "dynamic" cells that the program is known to write (typically operands
+ * patched to index arrays), which are loaded from memory every time. An
+ * instruction whose opcode cell is dynamic is left to the interpreter.
+ *
+ * The instructions are split into "regions", one static method
+ * each, kept below HotSpot's limit for JIT-compiling a method (8000 bytes of
+ * bytecode). Inside a region every instruction start is a target of a
+ * tableswitch on the pc, so jumps within a region never leave the method.
+ */
+final class BytecodeCompiler {
+    private static final String CLASS_NAME = "intcode/CompiledProgram";
+    private static final String CONTEXT = "intcode/CompiledIntcode";
+    private static final String RUN_DESCRIPTOR = "(L" + CONTEXT + ";I)I";
+
+    private static final int MAX_REGION_SIZE = 7000;
+    // Upper bound on the bytecode size of a single Intcode instruction
+    private static final int MAX_INSTRUCTION_SIZE = 80;
+    private static final int MAX_STACK = 16;
+    private static final int MAX_LOCALS = 2;
+    private static final int MAX_CACHED_PROGRAMS = 64;
+
+    // JVM opcodes used by the generated code
+    private static final int NOP = 0x00;
+    private static final int ICONST_0 = 0x03;
+    private static final int LCONST_0 = 0x09;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ILOAD_1 = 0x1b;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ISTORE_1 = 0x3c;
+    private static final int LADD = 0x61;
+    private static final int LMUL = 0x69;
+    private static final int LCMP = 0x94;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int IF_ICMPLT = 0xa1;
+    private static final int IF_ICMPGT = 0xa3;
+    private static final int GOTO = 0xa7;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int IRETURN = 0xac;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESTATIC = 0xb8;
+
+    // Generated code by what it was generated from, least recently used first,
+    // so that computers running the same program share code HotSpot has
+    // already compiled
+    private static final LinkedHashMap<CodeKey, MethodHandle> sCompiledPrograms = new LinkedHashMap<>(16, 0.75f,
+            true);
+
+    private final Intcode mIntcode;
+    private final Set<Integer> mEntryPoints;
+    private final BitSet mDynamicCells;
+    private final TreeMap<Integer, Instruction> mInstructions;
+    private boolean[] mCompiledCells;
+    private int mCodeEnd;
+    private final ConstantPool mPool;
+
+    BytecodeCompiler(Intcode intcode, Set<Integer> entryPoints, BitSet dynamicCells) {
+        mIntcode = intcode;
+        mEntryPoints = entryPoints;
+        mDynamicCells = dynamicCells;
+        mInstructions = new TreeMap<>();
+        mPool = new ConstantPool();
+    }
+
+    /**
+     * @return a handle to the generated `run(CompiledIntcode, int)` method,
+     *         shared with the computers that compiled the same instructions.
+     */
+    MethodHandle compile() throws ReflectiveOperationException {
+        discover();
+        CodeKey key = new CodeKey(fingerprint());
+        synchronized (sCompiledPrograms) {
+            MethodHandle cached = sCompiledPrograms.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        byte[] classBytes = generateClass(splitIntoRegions());
+        MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+        MethodHandle compiled = lookup.findStatic(lookup.lookupClass(), "run",
+                MethodType.methodType(int.class, CompiledIntcode.class, int.class));
+        synchronized (sCompiledPrograms) {
+            sCompiledPrograms.put(key, compiled);
+            if (sCompiledPrograms.size() > MAX_CACHED_PROGRAMS) {
+                Iterator<CodeKey> eldest = sCompiledPrograms.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * @return everything the generated code is made from: the discovered
+     *         instructions with their modes, dynamic cells and constants.
+     */
+    private long[] fingerprint() {
+        LongQueue values = new LongQueue();
+        for (Instruction instruction : mInstructions.values()) {
+            values.add(instruction.address);
+            values.add(instruction.opcode);
+            values.add(instruction.length);
+            for (int i = 0; i < instruction.params.length; i++) {
+                values.add(instruction.modes[i]);
+                values.add(instruction.dynamic[i] ? 1 : 0);
+                values.add(instruction.dynamic[i] ? 0 : instruction.params[i]);
+            }
+        }
+
+        return values.toArray();
+    }
+
+    /**
+     * @return for each memory cell, whether its value is baked into the
+     *         generated code.
+     */
+    boolean[] compiledCells() {
+        return mCompiledCells;
+    }
+
+    private static final class CodeKey {
+        private final long[] mValues;
+        private final int mHash;
+
+        CodeKey(long[] values) {
+            mValues = values;
+            mHash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof CodeKey && Arrays.equals(mValues, ((CodeKey) other).mValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+
+    private static final class Instruction {
+        final int address;
+        final int opcode;
+        final int[] modes;
+        final long[] params;
+        final boolean[] dynamic;
+        final int length;
+
+        Instruction(int address, int opcode, int[] modes, long[] params, boolean[] dynamic, int length) {
+            this.address = address;
+            this.opcode = opcode;
+            this.modes = modes;
+            this.params = params;
+            this.dynamic = dynamic;
+            this.length = length;
+        }
+
+        boolean isSupported() {
+            return length > 0;
+        }
+
+        int next() {
+            return address + length;
+        }
+    }
+
+    private Instruction decode(int address) {
+        int packed = Operation.pack(mIntcode.load(address));
+        int opcode = Operation.opcode(packed);
+
+        int length;
+        switch (opcode) {
+            case Intcode.OP_ADD:
+            case Intcode.OP_MULTIPLY:
+            case Intcode.OP_LESSTHAN:
+            case Intcode.OP_EQUALS:
+                length = 4;
+                break;
+            case Intcode.OP_JUMPIFTRUE:
+            case Intcode.OP_JUMPIFFALSE:
+                length = 3;
+                break;
+            case Intcode.OP_INPUT:
+            case Intcode.OP_OUTPUT:
+            case Intcode.OP_RELATIVEBASEOFFSET:
+                length = 2;
+                break;
+            case Intcode.OP_HALT:
+                length = 1;
+                break;
+            default:
+                length = 0;
+        }
+        if (mDynamicCells.get(address)) {
+            length = 0;
+        }
+
+        int paramNumber = Math.max(length - 1, 0);
+        int[] modes = new int[paramNumber];
+        long[] params = new long[paramNumber];
+        boolean[] dynamic = new boolean[paramNumber];
+        for (int i = 0; i < paramNumber; i++) {
+            modes[i] = Operation.mode(packed, i);
+            params[i] = mIntcode.load((long) address + i + 1);
+            dynamic[i] = mDynamicCells.get(address + i + 1);
+            if (modes[i] > Intcode.MODE_RELATIVE) {
+                length = 0; // let the interpreter report the invalid mode
+            }
+        }
+
+        return new Instruction(address, opcode, modes, params, dynamic, length);
+    }
+
+    /**
+     * Follows control flow from the entry points until no new store into an
+     * operand goes to an address known at compile time. Such cells are made
+     * dynamic up front, instead of recompiling once for each of them as the
+     * program writes them.
+     */
+    private void discover() {
+        do {
+            mInstructions.clear();
+            followControlFlow();
+        } while (markWrittenCode());
+
+        mCompiledCells = new boolean[mCodeEnd];
+        for (Instruction instruction : mInstructions.values()) {
+            // Unsupported instructions run on the interpreter, so writing their
+            // cells does not invalidate anything
+            if (!instruction.isSupported()) {
+                continue;
+            }
+            mCompiledCells[instruction.address] = true;
+            for (int i = 0; i < instruction.dynamic.length; i++) {
+                mCompiledCells[instruction.address + i + 1] = !instruction.dynamic[i];
+            }
+        }
+    }
+
+    private void followControlFlow() {
+        ArrayDeque<Integer> pending = new ArrayDeque<>(mEntryPoints);
+        // Values stored by instructions with constant operands, e.g. the return
+        // address pushed by `21101,ret,0,0` before the jump of a call
+        HashSet<Long> storedConstants = new HashSet<>();
+        mCodeEnd = 0;
+        while (!pending.isEmpty()) {
+            int address = pending.pop();
+            if (address < 0 || address == Integer.MAX_VALUE || mInstructions.containsKey(address)) {
+                continue;
+            }
+
+            Instruction instruction = decode(address);
+            mInstructions.put(address, instruction);
+            mCodeEnd = Math.max(mCodeEnd, address + Math.max(instruction.length, 1));
+            if (!instruction.isSupported() || instruction.opcode == Intcode.OP_HALT) {
+                continue;
+            }
+
+            if (isConstantStore(instruction)) {
+                storedConstants.add(instruction.opcode == Intcode.OP_ADD
+                        ? instruction.params[0] + instruction.params[1]
+                        : instruction.params[0] * instruction.params[1]);
+            }
+            // What follows a jump that is always taken is data, unless it is
+            // the return address of a call
+            if (!isUnconditionalJump(instruction) || storedConstants.contains((long) instruction.next())) {
+                pending.push(instruction.next());
+            }
+            if (isJump(instruction.opcode) && constantJumpTarget(instruction) >= 0) {
+                pending.push(constantJumpTarget(instruction));
+            }
+        }
+    }
+
+    /**
+     * Makes dynamic the operands that the code stores into at constant
+     * addresses. Opcodes are left to invalidation: code that is never run, such
+     * as the target of a jump that is never taken, would otherwise send real
+     * instructions to the interpreter.
+     *
+     * @return whether any cell was made dynamic.
+     */
+    private boolean markWrittenCode() {
+        BitSet operands = new BitSet(mCodeEnd);
+        for (Instruction instruction : mInstructions.values()) {
+            operands.set(instruction.address + 1, instruction.address + Math.max(instruction.length, 1));
+        }
+
+        boolean marked = false;
+        for (Instruction instruction : mInstructions.values()) {
+            int index = destinationIndex(instruction);
+            if (index < 0 || instruction.modes[index] != Intcode.MODE_POSITION || instruction.dynamic[index]) {
+                continue;
+            }
+
+            long target = instruction.params[index];
+            if (target >= 0 && target < mCodeEnd && operands.get((int) target) && !mDynamicCells.get((int) target)) {
+                mDynamicCells.set((int) target);
+                marked = true;
+            }
+        }
+
+        return marked;
+    }
+
+    /**
+     * @return the index of the parameter `instruction` stores into, -1 if it
+     *         does not store.
+     */
+    private static int destinationIndex(Instruction instruction) {
+        if (!instruction.isSupported()) {
+            return -1;
+        }
+
+        switch (instruction.opcode) {
+            case Intcode.OP_ADD:
+            case Intcode.OP_MULTIPLY:
+            case Intcode.OP_LESSTHAN:
+            case Intcode.OP_EQUALS:
+                return 2;
+            case Intcode.OP_INPUT:
+                return 0;
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean isConstantStore(Instruction instruction) {
+        return (instruction.opcode == Intcode.OP_ADD || instruction.opcode == Intcode.OP_MULTIPLY)
+                && instruction.modes[0] == Intcode.MODE_IMMEDIATE && !instruction.dynamic[0]
+                && instruction.modes[1] == Intcode.MODE_IMMEDIATE && !instruction.dynamic[1];
+    }
+
+    private static boolean isJump(int opcode) {
+        return opcode == Intcode.OP_JUMPIFTRUE || opcode == Intcode.OP_JUMPIFFALSE;
+    }
+
+    /**
+     * @return whether `instruction` is a jump whose condition is a constant
+     *         that always takes it, e.g. `1106,0,target`.
+     */
+    private static boolean isUnconditionalJump(Instruction instruction) {
+        if (!isJump(instruction.opcode) || instruction.modes[0] != Intcode.MODE_IMMEDIATE
+                || instruction.dynamic[0]) {
+            return false;
+        }
+
+        return (instruction.params[0] != 0) == (instruction.opcode == Intcode.OP_JUMPIFTRUE);
+    }
+
+    /**
+     * @return the target of a jump if it is known at compile time, -1 otherwise.
+     */
+    private static int constantJumpTarget(Instruction jump) {
+        if (jump.modes[1] != Intcode.MODE_IMMEDIATE || jump.dynamic[1] || jump.params[1] < 0
+                || jump.params[1] >= Integer.MAX_VALUE) {
+            return -1;
+        }
+
+        return (int) jump.params[1];
+    }
+
+    private static int tableSwitchSize(int low, int high) {
+        return 1 + 3 + 12 + 4 * (high - low + 1);
+    }
+
+    private List<List<Instruction>> splitIntoRegions() {
+        List<List<Instruction>> regions = new ArrayList<>();
+        List<Instruction> current = new ArrayList<>();
+        for (Instruction instruction : mInstructions.values()) {
+            if (!current.isEmpty()) {
+                int estimate = (current.size() + 1) * MAX_INSTRUCTION_SIZE
+                        + tableSwitchSize(current.get(0).address, instruction.address);
+                if (estimate > MAX_REGION_SIZE) {
+                    regions.add(current);
+                    current = new ArrayList<>();
+                }
+            }
+            current.add(instruction);
+        }
+        if (!current.isEmpty()) {
+            regions.add(current);
+        }
+
+        return regions;
+    }
+
+    private byte[] generateClass(List<List<Instruction>> regions) {
+        int thisClass = mPool.classRef(CLASS_NAME);
+        int superClass = mPool.classRef("java/lang/Object");
+        int contextClass = mPool.classRef(CONTEXT);
+
+        List<byte[]> methods = new ArrayList<>();
+        int[] regionMethods = new int[regions.size()];
+        for (int i = 0; i < regions.size(); i++) {
+            String name = "region" + i;
+            regionMethods[i] = mPool.methodRef(CLASS_NAME, name, RUN_DESCRIPTOR);
+            Code code = generateRegion(regions.get(i));
+            methods.add(methodInfo(name, code, contextClass));
+        }
+        methods.add(methodInfo("run", generateDispatcher(regions, regionMethods), contextClass));
+
+        ByteWriter out = new ByteWriter();
+        out.u4(0xCAFEBABE);
+        out.u2(0);
+        out.u2(55); // Java 11 class file
+        mPool.writeTo(out);
+        out.u2(0x0030); // ACC_FINAL | ACC_SUPER
+        out.u2(thisClass);
+        out.u2(superClass);
+        out.u2(0); // interfaces
+        out.u2(0); // fields
+        out.u2(methods.size());
+        for (byte[] method : methods) {
+            out.bytes(method);
+        }
+        out.u2(0); // attributes
+        return out.toByteArray();
+    }
+
+    private byte[] methodInfo(String name, Code code, int contextClass) {
+        byte[] bytecode = code.resolve();
+        if (bytecode.length > 0xFFFF) {
+            throw new IllegalArgumentException("Generated method is too large");
+        }
+
+        ByteWriter stackMap = new ByteWriter();
+        int[] frames = code.frameOffsets();
+        stackMap.u2(frames.length);
+        int previous = -1;
+        for (int offset : frames) {
+            // Every branch target has the same frame: (CompiledIntcode, int), empty stack
+            stackMap.u1(255);
+            stackMap.u2(offset - previous - 1);
+            stackMap.u2(MAX_LOCALS);
+            stackMap.u1(7);
+            stackMap.u2(contextClass);
+            stackMap.u1(1);
+            stackMap.u2(0);
+            previous = offset;
+        }
+        byte[] stackMapBytes = stackMap.toByteArray();
+
+        ByteWriter out = new ByteWriter();
+        out.u2(0x0008); // ACC_STATIC
+        out.u2(mPool.utf8(name));
+        out.u2(mPool.utf8(RUN_DESCRIPTOR));
+        out.u2(1);
+        out.u2(mPool.utf8("Code"));
+        out.u4(8 + bytecode.length + 4 + 6 + stackMapBytes.length);
+        out.u2(MAX_STACK);
+        out.u2(MAX_LOCALS);
+        out.u4(bytecode.length);
+        out.bytes(bytecode);
+        out.u2(0); // exception table
+        out.u2(1);
+        out.u2(mPool.utf8("StackMapTable"));
+        out.u4(stackMapBytes.length);
+        out.bytes(stackMapBytes);
+        return out.toByteArray();
+    }
+
+    /**
+     * `run` calls the region containing the pc until one of them requests an exit.
+     */
+    private Code generateDispatcher(List<List<Instruction>> regions, int[] regionMethods) {
+        Code code = new Code();
+        int loop = code.newLabel();
+        int dispatched = code.newLabel();
+
+        code.op(NOP); // the loop head needs an explicit frame, which cannot be at 0
+        code.bind(loop);
+        for (int i = 0; i < regions.size(); i++) {
+            List<Instruction> region = regions.get(i);
+            int next = code.newLabel();
+            code.op(ILOAD_1);
+            pushInt(code, region.get(0).address);
+            code.branch(IF_ICMPLT, next);
+            code.op(ILOAD_1);
+            pushInt(code, region.get(region.size() - 1).address);
+            code.branch(IF_ICMPGT, next);
+            code.op(ALOAD_0);
+            code.op(ILOAD_1);
+            code.op(INVOKESTATIC);
+            code.u2(regionMethods[i]);
+            code.op(ISTORE_1);
+            code.branch(GOTO, dispatched);
+            code.bind(next);
+        }
+        code.op(ALOAD_0);
+        invokeContext(code, "miss", "()V");
+        code.op(ILOAD_1);
+        code.op(IRETURN);
+
+        code.bind(dispatched);
+        code.op(ALOAD_0);
+        invokeContext(code, "exitRequested", "()Z");
+        code.branch(IFEQ, loop);
+        code.op(ILOAD_1);
+        code.op(IRETURN);
+        return code;
+    }
+
+    private Code generateRegion(List<Instruction> region) {
+        Code code = new Code();
+        int tableSwitch = code.newLabel();
+        int leave = code.newLabel();
+        int miss = code.newLabel();
+
+        HashMap<Integer, Integer> labels = new HashMap<>();
+        for (Instruction instruction : region) {
+            labels.put(instruction.address, code.newLabel());
+        }
+
+        code.branch(GOTO, tableSwitch);
+        for (int i = 0; i < region.size(); i++) {
+            Instruction instruction = region.get(i);
+            code.bind(labels.get(instruction.address));
+            boolean fallsThrough = generateInstruction(code, instruction, labels, tableSwitch);
+
+            Instruction following = i + 1 < region.size() ? region.get(i + 1) : null;
+            if (fallsThrough && (following == null || following.address != instruction.next())) {
+                pushInt(code, instruction.next());
+                code.op(ISTORE_1);
+                code.branch(GOTO, tableSwitch);
+            }
+        }
+
+        int low = region.get(0).address;
+        int high = region.get(region.size() - 1).address;
+        int[] targets = new int[high - low + 1];
+        for (int address = low; address <= high; address++) {
+            targets[address - low] = labels.getOrDefault(address, miss);
+        }
+        code.bind(tableSwitch);
+        code.op(ILOAD_1);
+        code.tableSwitch(leave, low, targets);
+
+        code.bind(leave);
+        code.op(ILOAD_1);
+        code.op(IRETURN);
+
+        code.bind(miss);
+        code.op(ALOAD_0);
+        invokeContext(code, "miss", "()V");
+        code.op(ILOAD_1);
+        code.op(IRETURN);
+        return code;
+    }
+
+    /**
+     * @return whether execution can continue with the next instruction.
+     */
+    private boolean generateInstruction(Code code, Instruction instruction, HashMap<Integer, Integer> labels,
+            int tableSwitch) {
+        if (!instruction.isSupported()) {
+            code.op(ALOAD_0);
+            invokeContext(code, "unsupported", "()V");
+            returnPc(code, instruction.address);
+            return false;
+        }
+
+        switch (instruction.opcode) {
+            case Intcode.OP_ADD:
+            case Intcode.OP_MULTIPLY:
+            case Intcode.OP_LESSTHAN:
+            case Intcode.OP_EQUALS:
+                code.op(ALOAD_0);
+                pushDestination(code, instruction, 2);
+                pushParameter(code, instruction, 0);
+                pushParameter(code, instruction, 1);
+                if (instruction.opcode == Intcode.OP_ADD) {
+                    code.op(LADD);
+                } else if (instruction.opcode == Intcode.OP_MULTIPLY) {
+                    code.op(LMUL);
+                } else {
+                    String helper = instruction.opcode == Intcode.OP_LESSTHAN ? "lessThan" : "equalTo";
+                    code.op(INVOKESTATIC);
+                    code.u2(mPool.methodRef(CONTEXT, helper, "(JJ)J"));
+                }
+                storeChecked(code, instruction.next());
+                return true;
+            case Intcode.OP_INPUT: {
+                int available = code.newLabel();
+                code.op(ALOAD_0);
+                invokeContext(code, "inputBlocked", "()Z");
+                code.branch(IFEQ, available);
+                returnPc(code, instruction.address);
+                code.bind(available);
+                code.op(ALOAD_0);
+                pushDestination(code, instruction, 0);
+                code.op(ALOAD_0);
+                invokeContext(code, "readInput", "()J");
+                storeChecked(code, instruction.next());
+                return true;
+            }
+            case Intcode.OP_OUTPUT: {
+                int resume = code.newLabel();
+                code.op(ALOAD_0);
+                pushParameter(code, instruction, 0);
+                invokeContext(code, "emitOutput", "(J)Z");
+                code.branch(IFEQ, resume);
+                returnPc(code, instruction.next());
+                code.bind(resume);
+                return true;
+            }
+            case Intcode.OP_JUMPIFTRUE:
+            case Intcode.OP_JUMPIFFALSE: {
+                boolean unconditional = isUnconditionalJump(instruction);
+                int notTaken = code.newLabel();
+                if (!unconditional) {
+                    pushParameter(code, instruction, 0);
+                    code.op(LCONST_0);
+                    code.op(LCMP);
+                    code.branch(instruction.opcode == Intcode.OP_JUMPIFTRUE ? IFEQ : IFNE, notTaken);
+                }
+
+                int target = constantJumpTarget(instruction);
+                if (target >= 0 && labels.containsKey(target)) {
+                    code.branch(GOTO, labels.get(target));
+                } else if (target >= 0) {
+                    pushInt(code, target);
+                    code.op(ISTORE_1);
+                    code.branch(GOTO, tableSwitch);
+                } else {
+                    pushParameter(code, instruction, 1);
+                    pushInt(code, instruction.address);
+                    code.op(INVOKESTATIC);
+                    code.u2(mPool.methodRef(CONTEXT, "jumpTarget", "(JI)I"));
+                    code.op(ISTORE_1);
+                    code.branch(GOTO, tableSwitch);
+                }
+                if (unconditional) {
+                    return false;
+                }
+                code.bind(notTaken);
+                return true;
+            }
+            case Intcode.OP_RELATIVEBASEOFFSET:
+                code.op(ALOAD_0);
+                pushParameter(code, instruction, 0);
+                invokeContext(code, "adjustRelativeBase", "(J)V");
+                return true;
+            case Intcode.OP_HALT:
+                code.op(ALOAD_0);
+                invokeContext(code, "halt", "()V");
+                returnPc(code, instruction.address);
+                return false;
+            default:
+                throw new IllegalStateException("Unexpected opcode " + instruction.opcode);
+        }
+    }
+
+    /**
+     * Expects (context, address, value) on the stack. Leaves the generated code
+     * if the store modified compiled code.
+     */
+    private void storeChecked(Code code, int next) {
+        int resume = code.newLabel();
+        invokeContext(code, "storeChecked", "(JJ)Z");
+        code.branch(IFEQ, resume);
+        returnPc(code, next);
+        code.bind(resume);
+    }
+
+    private void returnPc(Code code, int pc) {
+        pushInt(code, pc);
+        code.op(IRETURN);
+    }
+
+    private void pushParameter(Code code, Instruction instruction, int index) {
+        switch (instruction.modes[index]) {
+            case Intcode.MODE_IMMEDIATE:
+                pushRaw(code, instruction, index);
+                break;
+            case Intcode.MODE_POSITION:
+                code.op(ALOAD_0);
+                pushRaw(code, instruction, index);
+                invokeContext(code, "load", "(J)J");
+                break;
+            default:
+                code.op(ALOAD_0);
+                pushRelativeAddress(code, instruction, index);
+                invokeContext(code, "load", "(J)J");
+        }
+    }
+
+    private void pushDestination(Code code, Instruction instruction, int index) {
+        if (instruction.modes[index] == Intcode.MODE_RELATIVE) {
+            pushRelativeAddress(code, instruction, index);
+        } else {
+            pushRaw(code, instruction, index);
+        }
+    }
+
+    private void pushRelativeAddress(Code code, Instruction instruction, int index) {
+        code.op(ALOAD_0);
+        invokeContext(code, "relativeBase", "()J");
+        if (instruction.dynamic[index] || instruction.params[index] != 0) {
+            pushRaw(code, instruction, index);
+            code.op(LADD);
+        }
+    }
+
+    /**
+     * Pushes the parameter as written in the program, before applying its mode.
+     */
+    private void pushRaw(Code code, Instruction instruction, int index) {
+        if (instruction.dynamic[index]) {
+            code.op(ALOAD_0);
+            pushLong(code, instruction.address + index + 1);
+            invokeContext(code, "load", "(J)J");
+        } else {
+            pushLong(code, instruction.params[index]);
+        }
+    }
+
+    private void invokeContext(Code code, String name, String descriptor) {
+        code.op(INVOKEVIRTUAL);
+        code.u2(mPool.methodRef(CONTEXT, name, descriptor));
+    }
+
+    private void pushLong(Code code, long value) {
+        if (value == 0L || value == 1L) {
+            code.op(LCONST_0 + (int) value);
+        } else {
+            code.op(LDC2_W);
+            code.u2(mPool.longConstant(value));
+        }
+    }
+
+    private void pushInt(Code code, int value) {
+        if (value >= -1 && value <= 5) {
+            code.op(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.op(BIPUSH);
+            code.u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.op(SIPUSH);
+            code.u2(value);
+        } else {
+            code.op(LDC_W);
+            code.u2(mPool.intConstant(value));
+        }
+    }
+
+    /**
+     * Bytecode of one method, with labels resolved once all of it is emitted.
+     */
+    private static final class Code {
+        private final ByteWriter mBytes = new ByteWriter();
+        private final ArrayList<Integer> mLabelOffsets = new ArrayList<>();
+        // (offset of the branch opcode, offset of the operand, label, operand size)
+        private final ArrayList<int[]> mFixups = new ArrayList<>();
+
+        int newLabel() {
+            mLabelOffsets.add(-1);
+            return mLabelOffsets.size() - 1;
+        }
+
+        void bind(int label) {
+            mLabelOffsets.set(label, mBytes.size());
+        }
+
+        void op(int opcode) {
+            mBytes.u1(opcode);
+        }
+
+        void u1(int value) {
+            mBytes.u1(value);
+        }
+
+        void u2(int value) {
+            mBytes.u2(value);
+        }
+
+        void branch(int opcode, int label) {
+            int opcodeOffset = mBytes.size();
+            mBytes.u1(opcode);
+            mFixups.add(new int[] { opcodeOffset, mBytes.size(), label, 2 });
+            mBytes.u2(0);
+        }
+
+        void tableSwitch(int defaultLabel, int low, int[] labels) {
+            int opcodeOffset = mBytes.size();
+            mBytes.u1(TABLESWITCH);
+            while (mBytes.size() % 4 != 0) {
+                mBytes.u1(0);
+            }
+            mFixups.add(new int[] { opcodeOffset, mBytes.size(), defaultLabel, 4 });
+            mBytes.u4(0);
+            mBytes.u4(low);
+            mBytes.u4(low + labels.length - 1);
+            for (int label : labels) {
+                mFixups.add(new int[] { opcodeOffset, mBytes.size(), label, 4 });
+                mBytes.u4(0);
+            }
+        }
+
+        byte[] resolve() {
+            byte[] bytes = mBytes.toByteArray();
+            for (int[] fixup : mFixups) {
+                int delta = mLabelOffsets.get(fixup[2]) - fixup[0];
+                if (fixup[3] == 2) {
+                    if (delta < Short.MIN_VALUE || delta > Short.MAX_VALUE) {
+                        throw new IllegalArgumentException("Branch offset out of range");
+                    }
+                    bytes[fixup[1]] = (byte) (delta >> 8);
+                    bytes[fixup[1] + 1] = (byte) delta;
+                } else {
+                    for (int i = 0; i < 4; i++) {
+                        bytes[fixup[1] + i] = (byte) (delta >> (24 - 8 * i));
+                    }
+                }
+            }
+            return bytes;
+        }
+
+        /**
+         * @return sorted offsets of all bound labels, which all need a frame.
+         */
+        int[] frameOffsets() {
+            TreeSet<Integer> offsets = new TreeSet<>();
+            for (int offset : mLabelOffsets) {
+                if (offset >= 0) {
+                    offsets.add(offset);
+                }
+            }
+            return offsets.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static final class ConstantPool {
+        private final ByteWriter mEntries = new ByteWriter();
+        private final HashMap<String, Integer> mIndices = new HashMap<>();
+        private int mNextIndex = 1;
+
+        int utf8(String value) {
+            return entry("U" + value, 1, () -> {
+                mEntries.u1(1);
+                mEntries.u2(value.length());
+                mEntries.bytes(value.getBytes(StandardCharsets.US_ASCII));
+            });
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return entry("C" + name, 1, () -> {
+                mEntries.u1(7);
+                mEntries.u2(nameIndex);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + descriptor, 1, () -> {
+                mEntries.u1(12);
+                mEntries.u2(nameIndex);
+                mEntries.u2(descriptorIndex);
+            });
+            return entry("M" + owner + "." + name + descriptor, 1, () -> {
+                mEntries.u1(10);
+                mEntries.u2(ownerIndex);
+                mEntries.u2(nameAndType);
+            });
+        }
+
+        int intConstant(int value) {
+            return entry("I" + value, 1, () -> {
+                mEntries.u1(3);
+                mEntries.u4(value);
+            });
+        }
+
+        int longConstant(long value) {
+            return entry("J" + value, 2, () -> {
+                mEntries.u1(5);
+                mEntries.u4((int) (value >>> 32));
+                mEntries.u4((int) value);
+            });
+        }
+
+        private int entry(String key, int slots, Runnable writer) {
+            Integer index = mIndices.get(key);
+            if (index != null) {
+                return index;
+            }
+            if (mNextIndex + slots > 0xFFFF) {
+                throw new IllegalArgumentException("Constant pool is full");
+            }
+
+            writer.run();
+            mIndices.put(key, mNextIndex);
+            mNextIndex += slots;
+            return mNextIndex - slots;
+        }
+
+        void writeTo(ByteWriter out) {
+            out.u2(mNextIndex);
+            out.bytes(mEntries.toByteArray());
+        }
+    }
+
+    private static final class ByteWriter {
+        private byte[] mBuffer = new byte[256];
+        private int mSize;
+
+        int size() {
+            return mSize;
+        }
+
+        void u1(int value) {
+            if (mSize == mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, mSize * 2);
+            }
+            mBuffer[mSize++] = (byte) value;
+        }
+
+        void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        void u4(int value) {
+            u2(value >> 16);
+            u2(value);
+        }
+
+        void bytes(byte[] values) {
+            for (byte b : values) {
+                u1(b);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(mBuffer, mSize);
+        }
+    }
+}
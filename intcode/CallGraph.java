@@ -0,0 +1,206 @@
+package intcode;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Guest call graph of an Intcode program, reconstructed from the calling
+ * convention compilers to Intcode use: the caller stores the return address in
+ * a relative-mode stack slot and jumps to the function, whose first
+ * instruction is a RELATIVEBASEOFFSET that allocates its frame; the function
+ * frees the frame with another RELATIVEBASEOFFSET and returns with a jump
+ * through the stack slot.
+ *
+ * So a taken jump to a RELATIVEBASEOFFSET by a positive immediate is a call,
+ * and a taken jump through a relative-mode parameter is a return to the frame
+ * whose relative base at the call is the current one. Instructions are counted
+ * per node of the call tree, i.e. per chain of calls from the start. The tree
+ * is as deep as the guest recursion, so it is walked with explicit stacks.
+ */
+public final class CallGraph {
+    private final Node mRoot;
+    private Node mCurrent;
+    // Relative base at each call of the current chain
+    private long[] mCallRelativeBases;
+    private int mDepth;
+
+    CallGraph() {
+        mRoot = new Node(-1, null);
+        mCurrent = mRoot;
+        mCallRelativeBases = new long[16];
+    }
+
+    /**
+     * Counts `instructions` executed in the current function, or uncounts them
+     * if negative.
+     */
+    void count(long instructions) {
+        mCurrent.mSelf += instructions;
+    }
+
+    /**
+     * Tracks a taken jump to `target`, whose target parameter had mode
+     * `targetMode`.
+     */
+    void jumped(Memory memory, int target, int targetMode, long relativeBase) {
+        if (targetMode == Intcode.MODE_RELATIVE) {
+            // Return to the innermost frame called with this relative base
+            for (int depth = mDepth; depth > 0; depth--) {
+                if (mCallRelativeBases[depth - 1] == relativeBase) {
+                    while (mDepth >= depth) {
+                        mCurrent = mCurrent.mParent;
+                        mDepth--;
+                    }
+                    return;
+                }
+            }
+            return;
+        }
+
+        int packed = Operation.pack(memory.read(target));
+        if (Operation.opcode(packed) == Intcode.OP_RELATIVEBASEOFFSET
+                && Operation.mode(packed, 0) == Intcode.MODE_IMMEDIATE && memory.read(target + 1) > 0) {
+            if (mDepth == mCallRelativeBases.length) {
+                mCallRelativeBases = Arrays.copyOf(mCallRelativeBases, mDepth * 2);
+            }
+            mCallRelativeBases[mDepth++] = relativeBase;
+            mCurrent = mCurrent.mChildren.computeIfAbsent(target, entry -> new Node(entry, mCurrent));
+            mCurrent.mCalls++;
+        }
+    }
+
+    /**
+     * Writes one line per call chain that executed instructions, in the
+     * collapsed-stack format of flame graph tools: the functions from the
+     * outermost, separated by ';', then the number of instructions executed in
+     * the innermost one. Functions are named after their entry address.
+     *
+     * @param rootName name of the code outside any call, e.g. "main".
+     */
+    public void writeCollapsedStacks(Appendable out, String rootName) throws IOException {
+        // Path of the node on top of the stack, extended and cut as it moves
+        StringBuilder path = new StringBuilder(rootName);
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(mRoot, 0));
+        writeStack(out, path, mRoot);
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (!frame.mChildren.hasNext()) {
+                stack.pop();
+                path.setLength(frame.mPathLength);
+                continue;
+            }
+
+            Node child = frame.mChildren.next();
+            stack.push(new Frame(child, path.length()));
+            path.append(';').append(name(child.mEntry, rootName));
+            writeStack(out, path, child);
+        }
+    }
+
+    private static void writeStack(Appendable out, CharSequence path, Node node) throws IOException {
+        if (node.mSelf > 0) {
+            out.append(path).append(' ').append(Long.toString(node.mSelf)).append('\n');
+        }
+    }
+
+    /**
+     * @return the `limit` functions that ran the most instructions including
+     *         the functions they called, with those counts (inclusive, each
+     *         instruction counted once even through recursion), the counts
+     *         excluding their callees (exclusive) and their numbers of calls.
+     */
+    public String getReport(int limit) {
+        HashMap<Integer, long[]> functions = accumulate();
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%14s %14s %10s  function%n", "inclusive", "exclusive", "calls"));
+        functions.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+                .limit(limit)
+                .forEach(entry -> report.append(String.format("%14d %14d %10d  %s%n", entry.getValue()[0],
+                        entry.getValue()[1], entry.getValue()[2], name(entry.getKey(), "main"))));
+        return report.toString();
+    }
+
+    /**
+     * @return the counts per entry address: inclusive, exclusive and calls.
+     */
+    private HashMap<Integer, long[]> accumulate() {
+        HashMap<Integer, long[]> functions = new HashMap<>();
+        // Frames of each function on the chain to the node on top of the stack
+        HashMap<Integer, Integer> active = new HashMap<>();
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(enter(mRoot, active, functions));
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.mChildren.hasNext()) {
+                stack.push(enter(frame.mChildren.next(), active, functions));
+                continue;
+            }
+
+            stack.pop();
+            active.merge(frame.mNode.mEntry, -1, Integer::sum);
+            // A recursive call is already included in its outermost frame
+            if (frame.mOutermost) {
+                functions.get(frame.mNode.mEntry)[0] += frame.mTotal;
+            }
+            if (!stack.isEmpty()) {
+                stack.peek().mTotal += frame.mTotal;
+            }
+        }
+
+        return functions;
+    }
+
+    private static Frame enter(Node node, HashMap<Integer, Integer> active, HashMap<Integer, long[]> functions) {
+        long[] counts = functions.computeIfAbsent(node.mEntry, entry -> new long[3]);
+        counts[1] += node.mSelf;
+        counts[2] += node.mCalls;
+
+        Frame frame = new Frame(node, 0);
+        frame.mOutermost = active.merge(node.mEntry, 1, Integer::sum) == 1;
+        frame.mTotal = node.mSelf;
+        return frame;
+    }
+
+    private static String name(int entry, String rootName) {
+        return entry < 0 ? rootName : "fn" + entry;
+    }
+
+    private static final class Node {
+        final int mEntry;
+        final Node mParent;
+        final HashMap<Integer, Node> mChildren = new HashMap<>();
+        long mSelf;
+        long mCalls;
+
+        Node(int entry, Node parent) {
+            mEntry = entry;
+            mParent = parent;
+        }
+    }
+
+    /**
+     * Node being walked, with the children left to visit.
+     */
+    private static final class Frame {
+        final Node mNode;
+        final Iterator<Node> mChildren;
+        // Length of the path to the parent of the node, when writing stacks
+        final int mPathLength;
+        // Instructions executed in the subtree so far, and whether no frame of
+        // the same function is further up, when accumulating
+        long mTotal;
+        boolean mOutermost;
+
+        Frame(Node node, int pathLength) {
+            mNode = node;
+            mChildren = node.mChildren.values().iterator();
+            mPathLength = pathLength;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package intcode;
+
+/**
+ * Thread-safe FIFO of values between Intcode computers of a Network, or between
+ * them and the program driving the network. At most one computer reads from a
+ * channel.
+ */
+public final class Channel {
+    private final LongQueue mValues = new LongQueue();
+    private Network.Machine mReader;
+
+    /**
+     * Queues `value` and wakes up the computer reading this channel, if any.
+     */
+    public void send(long value) {
+        Network.Machine reader;
+        synchronized (this) {
+            mValues.add(value);
+            reader = mReader;
+        }
+
+        if (reader != null) {
+            reader.wake();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return mValues.isEmpty();
+    }
+
+    /**
+     * Removes and returns the oldest value, which must exist.
+     */
+    public synchronized long poll() {
+        if (mValues.isEmpty()) {
+            throw new RuntimeException("No value in the channel.");
+        }
+
+        return mValues.poll();
+    }
+
+    synchronized void setReader(Network.Machine reader) {
+        if (mReader != null) {
+            throw new RuntimeException("The channel already has a reader.");
+        }
+
+        mReader = reader;
+    }
+
+    /**
+     * Moves the oldest value, if any, to the inputs of `intcode`. Values stay in
+     * the channel until the computer needs them, so a computer that halts leaves
+     * the rest there.
+     *
+     * @return false if the channel is empty.
+     */
+    synchronized boolean moveTo(Intcode intcode) {
+        if (mValues.isEmpty()) {
+            return false;
+        }
+
+        intcode.queueInput(mValues.poll());
+        return true;
+    }
+}
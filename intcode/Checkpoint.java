@@ -0,0 +1,303 @@
+package intcode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the state of an Intcode computer to a memory-mapped file, so that a
+ * restarted process can resume from it instead of from instruction 0.
+ *
+ * Only the memory pages written since the previous save are written again. Each
+ * page has two slots in the file: a save goes to the slot that does not hold
+ * the latest saved copy, and the registers are written last into one of two
+ * alternating state records. If the process dies in the middle of a save, the
+ * file therefore still restores the previous one. Every slot is tagged with the
+ * generation of the save that wrote it.
+ *
+ * File layout: two state records of `STATE_SIZE` bytes, then the slot pairs.
+ *
+ * State record: CRC32 of the rest of the record, its length, magic, generation,
+ * position, opcode, relative base, last output, default input, number of
+ * pending inputs, number of host longs, whether the default input is set, then
+ * the pending inputs and the host longs. Slot: page index, generation, then the page.
+ */
+public final class Checkpoint implements Closeable {
+    private static final long MAGIC = 0x494e54434f444532L; // "INTCODE2"
+
+    private static final int STATE_SIZE = 1 << 20;
+    private static final int STATE_HEADER = 72;
+    private static final long PAGES_OFFSET = 2L * STATE_SIZE;
+
+    private static final int SLOT_HEADER = 16;
+    private static final int PAGE_BYTES = Memory.PAGE_SIZE * Long.BYTES;
+    private static final int SLOT_SIZE = SLOT_HEADER + PAGE_BYTES;
+    private static final int PAIR_SIZE = 2 * SLOT_SIZE;
+    // Slot pairs are mapped this many at a time
+    private static final int CHUNK_PAIRS = 256;
+    private static final int CHUNK_SIZE = CHUNK_PAIRS * PAIR_SIZE;
+
+    private final FileChannel mChannel;
+    private final MappedByteBuffer[] mStateRecords;
+    private final ArrayList<MappedByteBuffer> mChunks;
+    // Slot pair of each saved page
+    private final HashMap<Long, Integer> mPairs;
+    // Pairs whose latest copy is in their second slot
+    private final BitSet mLatestSlots;
+    private int mPairCount;
+
+    private long mGeneration;
+    private int mLatestRecord;
+
+    /**
+     * Opens or creates a checkpoint file.
+     */
+    public Checkpoint(Path file) throws IOException {
+        mChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        mStateRecords = new MappedByteBuffer[] { map(0, STATE_SIZE), map(STATE_SIZE, STATE_SIZE) };
+        mChunks = new ArrayList<>();
+        mPairs = new HashMap<>();
+        mLatestSlots = new BitSet();
+
+        mLatestRecord = -1;
+        for (int i = 0; i < 2; i++) {
+            long generation = readGeneration(mStateRecords[i]);
+            if (generation > mGeneration) {
+                mGeneration = generation;
+                mLatestRecord = i;
+            }
+        }
+        scanPairs();
+    }
+
+    /**
+     * Saves `intcode`.
+     */
+    public void save(Intcode intcode) throws IOException {
+        save(intcode, null);
+    }
+
+    /**
+     * Saves `intcode`, along with some state of the program driving it that
+     * `restore` gives back.
+     */
+    public void save(Intcode intcode, long[] hostState) throws IOException {
+        long generation = mGeneration + 1;
+        Memory memory = intcode.memory();
+        // Pairs written by this save, and the pairs of pages saved for the first
+        // time, which only become the latest copies once the save is committed
+        BitSet writtenPairs = new BitSet();
+        HashMap<Long, Integer> newPairs = new HashMap<>();
+        int record = mLatestRecord == 0 ? 1 : 0;
+        boolean committed = false;
+        try {
+            for (long pageIndex : memory.pageIndices(memory.isCleanFor(this))) {
+                writtenPairs.set(writePage(pageIndex, memory.page(pageIndex), generation, newPairs));
+            }
+            for (MappedByteBuffer chunk : mChunks) {
+                chunk.force();
+            }
+
+            // The state record commits the save
+            writeStateRecord(mStateRecords[record], generation, intcode, hostState);
+            committed = true;
+        } finally {
+            if (!committed) {
+                eraseSlots(writtenPairs);
+            }
+        }
+
+        mGeneration = generation;
+        mLatestRecord = record;
+        mLatestSlots.xor(writtenPairs);
+        mPairs.putAll(newPairs);
+        mPairCount += newPairs.size();
+        memory.markClean(this);
+        mStateRecords[record].force();
+    }
+
+    /**
+     * Replaces the state of `intcode`, which must run the same program as the
+     * saved computer, with the latest save.
+     *
+     * @return the host state given to `save`, or null if nothing was saved yet.
+     */
+    public long[] restore(Intcode intcode) {
+        if (mLatestRecord < 0) {
+            return null;
+        }
+
+        Memory memory = intcode.memory();
+        memory.clear();
+        long[] page = new long[Memory.PAGE_SIZE];
+        for (HashMap.Entry<Long, Integer> entry : mPairs.entrySet()) {
+            int pair = entry.getValue();
+            slotPage(pair, mLatestSlots.get(pair) ? 1 : 0).get(page);
+            memory.putPage(entry.getKey(), page);
+        }
+        memory.markClean(this);
+        intcode.invalidateCode();
+
+        ByteBuffer record = mStateRecords[mLatestRecord];
+        intcode.setPosition(record.getInt(24));
+        intcode.setOpcode(record.getInt(28));
+        intcode.setRelativeBase(record.getLong(32));
+        intcode.setOutput(record.getLong(40));
+        intcode.setDefaultInput(record.getLong(48), record.getLong(64) != 0);
+        long[] inputs = new long[record.getInt(56)];
+        long[] hostState = new long[record.getInt(60)];
+        LongBuffer payload = record.slice(STATE_HEADER, record.getInt(4) + 8 - STATE_HEADER)
+                .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        payload.get(inputs).get(hostState);
+        intcode.setPendingInputs(inputs);
+        return hostState;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mChannel.close();
+    }
+
+    private MappedByteBuffer map(long offset, int size) throws IOException {
+        MappedByteBuffer buffer = mChannel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * @return the generation of a state record, or 0 if it is empty or torn.
+     */
+    private static long readGeneration(MappedByteBuffer record) {
+        int length = record.getInt(4);
+        if (length < STATE_HEADER - 8 || length > STATE_SIZE - 8 || record.getLong(8) != MAGIC) {
+            return 0;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record.slice(8, length));
+        return (int) crc.getValue() == record.getInt(0) ? record.getLong(16) : 0;
+    }
+
+    private static void writeStateRecord(MappedByteBuffer record, long generation, Intcode intcode, long[] hostState) {
+        long[] inputs = intcode.pendingInputs();
+        int hostLength = hostState == null ? 0 : hostState.length;
+        long length = STATE_HEADER - 8 + (long) (inputs.length + hostLength) * Long.BYTES;
+        if (length > STATE_SIZE - 8) {
+            throw new RuntimeException("State too large to checkpoint (" + length + " bytes)");
+        }
+
+        record.putInt(4, (int) length);
+        record.putLong(8, MAGIC);
+        record.putLong(16, generation);
+        record.putInt(24, intcode.position());
+        record.putInt(28, intcode.getCurrentOpcode());
+        record.putLong(32, intcode.relativeBase());
+        record.putLong(40, intcode.output());
+        record.putLong(48, intcode.defaultInput());
+        record.putInt(56, inputs.length);
+        record.putInt(60, hostLength);
+        record.putLong(64, intcode.hasDefaultInput() ? 1 : 0);
+        record.slice(STATE_HEADER, (int) length - STATE_HEADER + 8).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer()
+                .put(inputs).put(hostState == null ? new long[0] : hostState);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.slice(8, (int) length));
+        record.putInt(0, (int) crc.getValue());
+    }
+
+    /**
+     * Finds the latest saved copy of every page, and erases the slots written by
+     * an unfinished save so that they can never be mistaken for saved ones.
+     */
+    private void scanPairs() throws IOException {
+        long pairNumber = Math.max(mChannel.size() - PAGES_OFFSET, 0) / PAIR_SIZE;
+        for (int pair = 0; pair < pairNumber; pair++) {
+            MappedByteBuffer chunk = chunk(pair);
+            int latest = -1;
+            long latestGeneration = 0;
+            for (int slot = 0; slot < 2; slot++) {
+                int offset = slotOffset(pair, slot);
+                long generation = chunk.getLong(offset + 8);
+                if (generation > mGeneration) {
+                    chunk.putLong(offset + 8, 0);
+                } else if (generation > latestGeneration) {
+                    latest = slot;
+                    latestGeneration = generation;
+                }
+            }
+
+            if (latest >= 0) {
+                mPairs.put(chunk.getLong(slotOffset(pair, latest)), pair);
+                mLatestSlots.set(pair, latest == 1);
+                mPairCount = pair + 1;
+            }
+        }
+    }
+
+    /**
+     * Writes `page` into the slot of its pair that does not hold its latest
+     * copy, adding the pair to `newPairs` if the page has none yet.
+     *
+     * @return the pair.
+     */
+    private int writePage(long pageIndex, long[] page, long generation, HashMap<Long, Integer> newPairs)
+            throws IOException {
+        Integer pair = mPairs.get(pageIndex);
+        if (pair == null) {
+            pair = mPairCount + newPairs.size();
+            newPairs.put(pageIndex, pair);
+        }
+
+        // Keep the latest copy until this save is committed
+        int slot = mLatestSlots.get(pair) ? 0 : 1;
+        MappedByteBuffer chunk = chunk(pair);
+        int offset = slotOffset(pair, slot);
+        chunk.putLong(offset, pageIndex);
+        chunk.putLong(offset + 8, generation);
+        slotPage(pair, slot).put(page);
+        return pair;
+    }
+
+    /**
+     * Erases the slots of `pairs` written by a save that failed, so that they
+     * can never be mistaken for saved ones, like `scanPairs` does after a crash.
+     */
+    private void eraseSlots(BitSet pairs) {
+        for (int pair = pairs.nextSetBit(0); pair >= 0; pair = pairs.nextSetBit(pair + 1)) {
+            int slot = mLatestSlots.get(pair) ? 0 : 1;
+            mChunks.get(pair / CHUNK_PAIRS).putLong(slotOffset(pair, slot) + 8, 0);
+        }
+    }
+
+    private LongBuffer slotPage(int pair, int slot) {
+        return mChunks.get(pair / CHUNK_PAIRS).slice(slotOffset(pair, slot) + SLOT_HEADER, PAGE_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    private MappedByteBuffer chunk(int pair) throws IOException {
+        int index = pair / CHUNK_PAIRS;
+        while (mChunks.size() <= index) {
+            mChunks.add(map(PAGES_OFFSET + (long) mChunks.size() * CHUNK_SIZE, CHUNK_SIZE));
+        }
+
+        return mChunks.get(index);
+    }
+
+    /**
+     * @return the offset of a slot within its chunk.
+     */
+    private static int slotOffset(int pair, int slot) {
+        return (pair % CHUNK_PAIRS) * PAIR_SIZE + slot * SLOT_SIZE;
+    }
+}
@@ -0,0 +1,226 @@
+package intcode;
+
+import java.lang.invoke.MethodHandle;
+import java.util.BitSet;
+import java.util.TreeSet;
+
+/**
+ * Intcode computer that translates the program into JVM bytecode on its first
+ * run (see BytecodeCompiler), so that HotSpot compiles the guest program
+ * directly. A store into a cell baked into the compiled code makes that cell
+ * "dynamic" and the program recompile from the current state; after
+ * `MAX_COMPILATIONS` it stays on the interpreter for good.
+ */
+public class CompiledIntcode extends Intcode {
+    static final int MAX_COMPILATIONS = 8;
+
+    // Why the compiled code handed control back to `execute`
+    static final int EXIT_NONE = 0;
+    static final int EXIT_OUTPUT = 1;
+    static final int EXIT_HALT = 2;
+    static final int EXIT_INVALIDATED = 3;
+    static final int EXIT_MISS = 4;
+    static final int EXIT_UNSUPPORTED = 5;
+    static final int EXIT_NEEDS_INPUT = 6;
+
+    private final TreeSet<Integer> mEntryPoints;
+    private final BitSet mDynamicCells;
+    private MethodHandle mCompiledProgram;
+    private boolean[] mCompiledCells;
+    private int mCompilationCount;
+    private boolean mInterpreterOnly;
+
+    private int mExit;
+    private long mInvalidatedCell;
+
+    public CompiledIntcode(long[] instructionArray, long[] inputs) {
+        super(instructionArray, inputs);
+        mEntryPoints = new TreeSet<>();
+        mEntryPoints.add(0);
+        mDynamicCells = new BitSet();
+    }
+
+    /**
+     * Copies the state of `parent`, including its compiled code, which still
+     * matches the shared memory.
+     */
+    private CompiledIntcode(CompiledIntcode parent) {
+        super(parent);
+        mEntryPoints = new TreeSet<>(parent.mEntryPoints);
+        mDynamicCells = (BitSet) parent.mDynamicCells.clone();
+        mCompiledProgram = parent.mCompiledProgram;
+        mCompiledCells = parent.mCompiledCells;
+        mCompilationCount = parent.mCompilationCount;
+        mInterpreterOnly = parent.mInterpreterOnly;
+    }
+
+    @Override
+    public CompiledIntcode fork() {
+        return new CompiledIntcode(this);
+    }
+
+    /**
+     * Covers the writes of the host and of the interpreter, when it runs
+     * instead of the compiled code.
+     */
+    @Override
+    void codeWritten(int address) {
+        if (mCompiledProgram != null && address < mCompiledCells.length && mCompiledCells[address]) {
+            mDynamicCells.set(address);
+            mCompiledProgram = null;
+        }
+    }
+
+    @Override
+    void invalidateCode() {
+        super.invalidateCode();
+        mCompiledProgram = null;
+    }
+
+    /**
+     * @return true if the program currently runs as compiled code.
+     */
+    public boolean isCompiled() {
+        return mCompiledProgram != null;
+    }
+
+    @Override
+    void execute() {
+        if (getTrace() != null) {
+            super.execute();
+            return;
+        }
+
+        while (true) {
+            if (mCompiledProgram == null && !compile()) {
+                super.execute();
+                return;
+            }
+
+            mExit = EXIT_NONE;
+            int pc;
+            try {
+                pc = (int) mCompiledProgram.invokeExact(this, position());
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+            setPosition(pc);
+
+            switch (mExit) {
+                case EXIT_OUTPUT:
+                case EXIT_HALT:
+                case EXIT_NEEDS_INPUT:
+                    return;
+                case EXIT_INVALIDATED:
+                    mDynamicCells.set((int) mInvalidatedCell);
+                    mCompiledProgram = null;
+                    break;
+                case EXIT_UNSUPPORTED:
+                    // Invalid or self-modified instruction
+                    super.execute();
+                    return;
+                default:
+                    // Jumped to an address that was not discovered at compile time
+                    mEntryPoints.add(pc);
+                    mCompiledProgram = null;
+                    break;
+            }
+        }
+    }
+
+    private boolean compile() {
+        if (mInterpreterOnly || mCompilationCount >= MAX_COMPILATIONS) {
+            mInterpreterOnly = true;
+            return false;
+        }
+
+        mCompilationCount++;
+        mEntryPoints.add(position());
+        BytecodeCompiler compiler = new BytecodeCompiler(this, mEntryPoints, mDynamicCells);
+        try {
+            mCompiledProgram = compiler.compile();
+        } catch (ReflectiveOperationException | LinkageError | IllegalArgumentException e) {
+            // The program does not fit the JVM's class file limits
+            mInterpreterOnly = true;
+            return false;
+        }
+        mCompiledCells = compiler.compiledCells();
+        return true;
+    }
+
+    // Callbacks used by the generated code
+
+    /**
+     * Writes `value` and returns true if it hit compiled code, which must then
+     * stop running.
+     */
+    boolean storeChecked(long index, long value) {
+        store(index, value);
+        if (index < mCompiledCells.length && mCompiledCells[(int) index]) {
+            mExit = EXIT_INVALIDATED;
+            mInvalidatedCell = index;
+            return true;
+        }
+
+        return false;
+    }
+
+    long readInput() {
+        return nextInput();
+    }
+
+    @Override
+    boolean inputBlocked() {
+        if (super.inputBlocked()) {
+            mExit = EXIT_NEEDS_INPUT;
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    boolean emitOutput(long value) {
+        if (super.emitOutput(value)) {
+            mExit = EXIT_OUTPUT;
+            return true;
+        }
+
+        return false;
+    }
+
+    void adjustRelativeBase(long offset) {
+        setRelativeBase(relativeBase() + offset);
+    }
+
+    void halt() {
+        setOpcode(OP_HALT);
+        mExit = EXIT_HALT;
+    }
+
+    void miss() {
+        mExit = EXIT_MISS;
+    }
+
+    void unsupported() {
+        mExit = EXIT_UNSUPPORTED;
+    }
+
+    boolean exitRequested() {
+        return mExit != EXIT_NONE;
+    }
+
+    static long lessThan(long a, long b) {
+        return a < b ? 1 : 0;
+    }
+
+    static long equalTo(long a, long b) {
+        return a == b ? 1 : 0;
+    }
+
+    static int jumpTarget(long target, int position) {
+        return toAddress(target, position);
+    }
+}
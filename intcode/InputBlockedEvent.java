@@ -0,0 +1,19 @@
+package intcode;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning the time an Intcode computer waited for input:
+ * from a run that stopped at an INPUT with no input available until the next
+ * run.
+ */
+@Name("intcode.InputBlocked")
+@Label("Intcode Blocked On Input")
+@Category("Intcode")
+final class InputBlockedEvent extends Event {
+    @Label("Position")
+    int position;
+}
@@ -0,0 +1,115 @@
+package intcode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Sequence of the inputs an Intcode computer consumed (see
+ * Intcode.setInputLog), so that a session whose inputs a device computes from
+ * its state can be run again without the device: queuing the logged inputs
+ * makes the program take the same path.
+ *
+ * Inputs are stored as zigzag varints, i.e. 7 bits per byte with the high bit
+ * set on all bytes but the last, after mapping small negative values to small
+ * positive ones: joystick moves and panel colors take one byte each. A saved
+ * log is these bytes, with nothing before or after them.
+ */
+public final class InputLog {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] mBytes;
+    private int mByteCount;
+    private int mInputCount;
+
+    public InputLog() {
+        mBytes = new byte[INITIAL_CAPACITY];
+    }
+
+    private InputLog(byte[] bytes) {
+        mBytes = bytes;
+        mByteCount = bytes.length;
+        for (byte b : bytes) {
+            if (b >= 0) {
+                mInputCount++;
+            }
+        }
+        if (mByteCount > 0 && mBytes[mByteCount - 1] < 0) {
+            throw new RuntimeException("Truncated input log");
+        }
+    }
+
+    public static InputLog load(Path file) throws IOException {
+        return new InputLog(Files.readAllBytes(file));
+    }
+
+    public void save(Path file) throws IOException {
+        Files.write(file, Arrays.copyOf(mBytes, mByteCount));
+    }
+
+    /**
+     * @return number of inputs logged.
+     */
+    public int size() {
+        return mInputCount;
+    }
+
+    /**
+     * @return size of the encoded log in bytes.
+     */
+    public int getByteCount() {
+        return mByteCount;
+    }
+
+    public void clear() {
+        mByteCount = 0;
+        mInputCount = 0;
+    }
+
+    void add(long input) {
+        if (mBytes.length - mByteCount < 10) {
+            mBytes = Arrays.copyOf(mBytes, mBytes.length * 2);
+        }
+
+        long value = (input << 1) ^ (input >> 63);
+        while ((value & ~0x7FL) != 0) {
+            mBytes[mByteCount++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        mBytes[mByteCount++] = (byte) value;
+        mInputCount++;
+    }
+
+    /**
+     * @return the logged inputs, in the order they were consumed.
+     */
+    public long[] toArray() {
+        long[] inputs = new long[mInputCount];
+        int index = 0;
+        for (int i = 0; i < mInputCount; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = mBytes[index++];
+                value |= (b & 0x7FL) << shift;
+                shift += 7;
+            } while (b < 0);
+            inputs[i] = (value >>> 1) ^ -(value & 1);
+        }
+
+        return inputs;
+    }
+
+    /**
+     * Queues the logged inputs into `intcode`, which must be in the state the
+     * logged computer started from. Run it with `run(LongConsumer)` or
+     * `runUntilOutputs`, which stop at an input past the end of the log (unless
+     * a default input was set) instead of asking an input supplier.
+     */
+    public void replay(Intcode intcode) {
+        intcode.setInputSupplier(null);
+        intcode.provideInput(toArray());
+    }
+}
@@ -0,0 +1,415 @@
+package intcode;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Intcode computer that counts what the program executes: instructions per
+ * opcode, parameters per addressing mode, inputs and outputs, along with the
+ * time spent running and the peak memory allocated. It also profiles where:
+ * how often each address runs, and how often each basic block is entered, a
+ * block starting at address 0 and after every jump, taken or not, and builds
+ * the guest call graph (see CallGraph).
+ *
+ * It runs on the interpreter of Intcode, which calls `countDispatch` before
+ * every dispatch, and counts fused instructions as the two instructions the
+ * program wrote. Intcode itself carries no counters, so the statistics cost a
+ * branch per dispatch unless this class is used.
+ */
+public class InstrumentedIntcode extends Intcode {
+    private final long[] mOpcodeCounts;
+    private final long[] mModeCounts;
+    private long mInstructionCount;
+    private long mInputCount;
+    private long mOutputTotal;
+    private long mRunNanos;
+    private long mPeakAllocatedCells;
+
+    // Executions and basic block entries per address
+    private long[] mAddressCounts;
+    private long[] mBlockCounts;
+    // Whether the next instruction starts a basic block
+    private boolean mBlockStart;
+    private final CallGraph mCallGraph;
+
+    // Mode of the target of the taken jump counted last, for the call graph at
+    // the next dispatch, or -1
+    private int mJumpMode = -1;
+    private long mJumpRelativeBase;
+    // Address of the jump of a fused comparison not counted yet, or -1
+    private int mFusedJumpAddress = -1;
+    // The instruction counted last, uncounted if it is an INPUT that blocks
+    private int mLastAddress;
+    private boolean mLastStartedBlock;
+
+    public InstrumentedIntcode(long[] instructionArray, long[] inputs) {
+        super(instructionArray, inputs);
+        mOpcodeCounts = new long[OP_HALT + 1];
+        mModeCounts = new long[MODE_RELATIVE + 1];
+        mAddressCounts = new long[instructionArray.length];
+        mBlockCounts = new long[instructionArray.length];
+        mBlockStart = true;
+        mCallGraph = new CallGraph();
+    }
+
+    /**
+     * Copies the state of `parent`, but not its statistics: the fork counts
+     * from zero.
+     */
+    private InstrumentedIntcode(InstrumentedIntcode parent) {
+        super(parent);
+        mOpcodeCounts = new long[OP_HALT + 1];
+        mModeCounts = new long[MODE_RELATIVE + 1];
+        mAddressCounts = new long[parent.mAddressCounts.length];
+        mBlockCounts = new long[parent.mBlockCounts.length];
+        mBlockStart = parent.mBlockStart;
+        mCallGraph = new CallGraph();
+    }
+
+    @Override
+    public InstrumentedIntcode fork() {
+        return new InstrumentedIntcode(this);
+    }
+
+    /**
+     * @return number of instructions executed, HALT included.
+     */
+    public long getInstructionCount() {
+        return mInstructionCount;
+    }
+
+    /**
+     * @return number of executed instructions with the given opcode, e.g.
+     *         OP_ADD.
+     */
+    public long getOpcodeCount(int opcode) {
+        return opcode >= 0 && opcode < mOpcodeCounts.length ? mOpcodeCounts[opcode] : 0;
+    }
+
+    /**
+     * @return number of parameters, destinations included, read in the given
+     *         mode, e.g. MODE_RELATIVE.
+     */
+    public long getModeCount(int mode) {
+        return mode >= 0 && mode < mModeCounts.length ? mModeCounts[mode] : 0;
+    }
+
+    /**
+     * @return number of inputs read by the program.
+     */
+    public long getInputCount() {
+        return mInputCount;
+    }
+
+    /**
+     * @return number of outputs of the program over all runs.
+     */
+    public long getTotalOutputCount() {
+        return mOutputTotal;
+    }
+
+    /**
+     * @return time spent running the program, in nanoseconds.
+     */
+    public long getRunNanos() {
+        return mRunNanos;
+    }
+
+    /**
+     * @return instructions executed per second of running.
+     */
+    public double getInstructionsPerSecond() {
+        return mRunNanos == 0 ? 0 : mInstructionCount * 1e9 / mRunNanos;
+    }
+
+    /**
+     * @return the most memory cells allocated at the end of a run.
+     */
+    public long getMemoryHighWaterMark() {
+        return mPeakAllocatedCells;
+    }
+
+    /**
+     * @return the statistics, one per line.
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Instructions: %d in %.3f ms (%.1f M/s)%n", mInstructionCount, mRunNanos / 1e6,
+                getInstructionsPerSecond() / 1e6));
+        for (int opcode = 0; opcode < mOpcodeCounts.length; opcode++) {
+            if (Operation.name(opcode) != null) {
+                report.append(String.format("  %-18s %d%n", Operation.name(opcode), mOpcodeCounts[opcode]));
+            }
+        }
+        report.append(String.format("Parameters: %d position, %d immediate, %d relative%n",
+                mModeCounts[MODE_POSITION], mModeCounts[MODE_IMMEDIATE], mModeCounts[MODE_RELATIVE]));
+        report.append(String.format("Inputs: %d, outputs: %d, memory high-water mark: %d cells%n", mInputCount,
+                mOutputTotal, mPeakAllocatedCells));
+        return report.toString();
+    }
+
+    /**
+     * @return the guest call graph of everything this computer ran.
+     */
+    public CallGraph getCallGraph() {
+        return mCallGraph;
+    }
+
+    /**
+     * @return number of times the instruction at `address` ran.
+     */
+    public long getAddressCount(int address) {
+        return address >= 0 && address < mAddressCounts.length ? mAddressCounts[address] : 0;
+    }
+
+    /**
+     * @return number of times a basic block was entered at `address`.
+     */
+    public long getBlockEntryCount(int address) {
+        return address >= 0 && address < mBlockCounts.length ? mBlockCounts[address] : 0;
+    }
+
+    /**
+     * @return the `limit` addresses that ran most, then the `limit` basic
+     *         blocks that ran the most instructions, each with its instructions
+     *         as they are now in memory.
+     */
+    public String getProfileReport(int limit) {
+        StringBuilder report = new StringBuilder();
+        Memory memory = memory();
+
+        report.append(String.format("Hottest addresses (of %d instructions):%n", mInstructionCount));
+        for (int address : ranked(mAddressCounts, mAddressCounts, limit)) {
+            report.append(String.format("%12d %5.1f%% %6d: %s%n", mAddressCounts[address],
+                    100.0 * mAddressCounts[address] / mInstructionCount, address,
+                    Operation.disassemble(memory, address)));
+        }
+
+        // A block runs from its start to the first jump, halt or other block start
+        long[] blockLengths = new long[mBlockCounts.length];
+        long[] blockInstructions = new long[mBlockCounts.length];
+        for (int address = 0; address < mBlockCounts.length; address++) {
+            if (mBlockCounts[address] > 0) {
+                blockLengths[address] = blockEnd(memory, address) - address;
+                blockInstructions[address] = mBlockCounts[address] * instructionCount(memory, address,
+                        address + (int) blockLengths[address]);
+            }
+        }
+        report.append(String.format("Hottest basic blocks:%n"));
+        for (int address : ranked(blockInstructions, mBlockCounts, limit)) {
+            report.append(String.format("%6d-%d: %d entries, %d instructions (%.1f%%)%n", address,
+                    address + blockLengths[address] - 1, mBlockCounts[address], blockInstructions[address],
+                    100.0 * blockInstructions[address] / mInstructionCount));
+            int end = address + (int) blockLengths[address];
+            for (int pc = address; pc < end; pc = next(memory, pc)) {
+                report.append(String.format("%14d: %s%n", pc, Operation.disassemble(memory, pc)));
+            }
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * @return the addresses with a non-zero `counts`, at most `limit` of them, by
+     *         decreasing `keys`.
+     */
+    private static int[] ranked(long[] keys, long[] counts, int limit) {
+        return IntStream.range(0, counts.length).filter(address -> counts[address] > 0).boxed()
+                .sorted((a, b) -> Long.compare(keys[b], keys[a])).limit(limit).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return the address following the basic block that starts at `start`.
+     */
+    private int blockEnd(Memory memory, int start) {
+        int pc = start;
+        while (true) {
+            int opcode = Operation.opcode(Operation.pack(memory.read(pc)));
+            int next = next(memory, pc);
+            if (opcode == OP_JUMPIFTRUE || opcode == OP_JUMPIFFALSE || Operation.name(opcode) == null
+                    || opcode == OP_HALT || next >= mBlockCounts.length || mBlockCounts[next] > 0) {
+                return next;
+            }
+            pc = next;
+        }
+    }
+
+    private static long instructionCount(Memory memory, int start, int end) {
+        long count = 0;
+        for (int pc = start; pc < end; pc = next(memory, pc)) {
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return the address of the instruction after the one at `pc`.
+     */
+    private static int next(Memory memory, int pc) {
+        int opcode = Operation.opcode(Operation.pack(memory.read(pc)));
+        return pc + 1 + (Operation.name(opcode) == null ? 0 : Operation.parameterCount(opcode));
+    }
+
+    @Override
+    long executedInstructions() {
+        return mInstructionCount;
+    }
+
+    @Override
+    void execute() {
+        long start = System.nanoTime();
+        try {
+            super.execute();
+        } finally {
+            mRunNanos += System.nanoTime() - start;
+            mPeakAllocatedCells = Math.max(mPeakAllocatedCells, memory().allocatedCells());
+            // A run stops at an instruction after any jump, unless it failed
+            mFusedJumpAddress = -1;
+            mJumpMode = -1;
+        }
+    }
+
+    @Override
+    boolean countsDispatches() {
+        return true;
+    }
+
+    /**
+     * Counts the instructions of the dispatch at `pc`, a fused one being split
+     * back into the two instructions the program wrote. The jump of a fused
+     * comparison runs only if the comparison did not overwrite it, so it is
+     * counted at the next dispatch, as is the target of a taken jump.
+     */
+    @Override
+    void countDispatch(Memory memory, int pc, int decoded, long relativeBase) {
+        if (mFusedJumpAddress >= 0) {
+            // Else the jump is dispatched on its own now (a jump to itself
+            // would never stop)
+            if (pc != mFusedJumpAddress) {
+                count(memory, mFusedJumpAddress, Operation.pack(memory.read(mFusedJumpAddress)), relativeBase);
+            }
+            mFusedJumpAddress = -1;
+        }
+        if (mJumpMode >= 0) {
+            mCallGraph.jumped(memory, pc, mJumpMode, mJumpRelativeBase);
+            mJumpMode = -1;
+        }
+
+        int first = Operation.pack(memory.read(pc));
+        count(memory, pc, first, relativeBase);
+        if (Operation.opcode(decoded) == Operation.opcode(first)) {
+            return;
+        }
+        if (Operation.opcode(first) == OP_RELATIVEBASEOFFSET) {
+            long fusedBase = relativeBase + Operation.operand(memory, memory.read(pc + 1), Operation.mode(first, 0),
+                    relativeBase);
+            count(memory, pc + 2, Operation.pack(memory.read(pc + 2)), fusedBase);
+        } else {
+            mFusedJumpAddress = pc + 4;
+        }
+    }
+
+    /**
+     * Counts the instruction at `address`, unless it is not one, in which case
+     * the interpreter throws without running it.
+     */
+    private void count(Memory memory, int address, int packed, long relativeBase) {
+        int opcode = Operation.opcode(packed);
+        if (Operation.name(opcode) == null) {
+            return;
+        }
+
+        mInstructionCount++;
+        mCallGraph.count(1);
+        mOpcodeCounts[opcode]++;
+        if (address >= mAddressCounts.length) {
+            int length = Math.max(address + 1, mAddressCounts.length * 2);
+            mAddressCounts = Arrays.copyOf(mAddressCounts, length);
+            mBlockCounts = Arrays.copyOf(mBlockCounts, length);
+        }
+        mAddressCounts[address]++;
+        mLastAddress = address;
+        mLastStartedBlock = mBlockStart;
+        if (mBlockStart) {
+            mBlockCounts[address]++;
+            mBlockStart = false;
+        }
+
+        switch (opcode) {
+            case OP_ADD:
+            case OP_MULTIPLY:
+            case OP_LESSTHAN:
+            case OP_EQUALS:
+                countMode(Operation.mode(packed, 0), 1);
+                countMode(Operation.mode(packed, 1), 1);
+                countDestinationMode(Operation.mode(packed, 2), 1);
+                break;
+            case OP_INPUT:
+                countDestinationMode(Operation.mode(packed, 0), 1);
+                break;
+            case OP_OUTPUT:
+            case OP_RELATIVEBASEOFFSET:
+                countMode(Operation.mode(packed, 0), 1);
+                break;
+            case OP_JUMPIFTRUE:
+            case OP_JUMPIFFALSE:
+                // The target is only read if the jump is taken
+                mBlockStart = true;
+                countMode(Operation.mode(packed, 0), 1);
+                long condition = Operation.operand(memory, memory.read(address + 1), Operation.mode(packed, 0),
+                        relativeBase);
+                if ((condition != 0L) == (opcode == OP_JUMPIFTRUE)) {
+                    countMode(Operation.mode(packed, 1), 1);
+                    mJumpMode = Operation.mode(packed, 1);
+                    mJumpRelativeBase = relativeBase;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void countMode(int mode, int count) {
+        if (mode >= 0 && mode < mModeCounts.length) {
+            mModeCounts[mode] += count;
+        }
+    }
+
+    private void countDestinationMode(int mode, int count) {
+        if (mode == MODE_POSITION || mode == MODE_RELATIVE) {
+            mModeCounts[mode] += count;
+        }
+    }
+
+    @Override
+    boolean inputBlocked() {
+        if (!super.inputBlocked()) {
+            return false;
+        }
+
+        // The INPUT counted last runs again once there is an input
+        mInstructionCount--;
+        mCallGraph.count(-1);
+        mOpcodeCounts[OP_INPUT]--;
+        countDestinationMode(Operation.mode(Operation.pack(memory().read(mLastAddress)), 0), -1);
+        mAddressCounts[mLastAddress]--;
+        if (mLastStartedBlock) {
+            mBlockCounts[mLastAddress]--;
+            mBlockStart = true;
+        }
+        return true;
+    }
+
+    @Override
+    long nextInput() {
+        mInputCount++;
+        return super.nextInput();
+    }
+
+    @Override
+    boolean emitOutput(long output) {
+        mOutputTotal++;
+        return super.emitOutput(output);
+    }
+}
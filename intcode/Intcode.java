@@ -0,0 +1,811 @@
+package intcode;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+import jdk.jfr.EventType;
+
+/**
+ * Shared 64-bit Intcode computer used by every day's solution. Compile a day
+ * against it with the repository root on the source path, e.g. from `day13/`:
+ * `javac -sourcepath .:.. solution/*.java`. BatchIntcode uses the incubating
+ * Vector API, so a day that uses it also needs `--add-modules
+ * jdk.incubator.vector`, for javac and for java.
+ */
+public class Intcode {
+    public static final int OP_ADD = 1;
+    public static final int OP_MULTIPLY = 2;
+    public static final int OP_INPUT = 3;
+    public static final int OP_OUTPUT = 4;
+    public static final int OP_JUMPIFTRUE = 5;
+    public static final int OP_JUMPIFFALSE = 6;
+    public static final int OP_LESSTHAN = 7;
+    public static final int OP_EQUALS = 8;
+    public static final int OP_RELATIVEBASEOFFSET = 9;
+    public static final int OP_HALT = 99;
+
+    public static final int MODE_POSITION = 0;
+    public static final int MODE_IMMEDIATE = 1;
+    public static final int MODE_RELATIVE = 2;
+
+    /**
+     * Why `run(LongConsumer)` or `runUntilOutputs` returned.
+     */
+    public enum Status {
+        OUTPUT, NEEDS_INPUT, HALTED
+    }
+
+    // Superinstructions the interpreter fuses common pairs into (see `fuse`).
+    // A relative base offset followed by instruction X is OP_FUSED_RBO + X.
+    private static final int OP_LESSTHAN_JUMPIFTRUE = 100;
+    private static final int OP_LESSTHAN_JUMPIFFALSE = 101;
+    private static final int OP_EQUALS_JUMPIFTRUE = 102;
+    private static final int OP_EQUALS_JUMPIFFALSE = 103;
+    private static final int OP_FUSED_RBO = 110;
+
+    // Flight Recorder event types, checked before creating an event so that a
+    // run allocates nothing while they are not recorded
+    private static final EventType RUN_EVENT_TYPE = EventType.getEventType(RunEvent.class);
+    private static final EventType INPUT_BLOCKED_EVENT_TYPE = EventType.getEventType(InputBlockedEvent.class);
+    private static final EventType OUTPUT_BURST_EVENT_TYPE = EventType.getEventType(OutputBurstEvent.class);
+
+    private final Memory mMemory;
+    // Packed decoded instruction (see Operation.pack) per address of the
+    // original program, 0 if not decoded yet
+    private final int[] mDecodedInstructions;
+    // Cells a fused instruction depends on, besides its own address
+    private final boolean[] mGuardedCells;
+    private final LongQueue mInputs;
+    private LongSupplier mInputSupplier;
+    private long mDefaultInput;
+    private boolean mHasDefaultInput;
+    private long mOutput;
+
+    // Where the current run hands its outputs (see emitOutput), and whether it
+    // stops at an input none is available for
+    private boolean mStopAtOutput;
+    private LongConsumer mOutputSink;
+    private long[] mOutputBatch;
+    private int mOutputBatchSize;
+    private int mOutputCount;
+    private boolean mBlockOnInput;
+
+    // Flight Recorder events in progress, only while recording
+    private InputBlockedEvent mBlockedEvent;
+    private OutputBurstEvent mBurstEvent;
+
+    // Last instructions executed, or null when not tracing
+    private Trace mTrace;
+    // Inputs consumed, or null when not logging them
+    private InputLog mInputLog;
+
+    private int mPosition;
+    private long mRelativeBase;
+    private int mOpcode;
+
+    /**
+     * The program is copied, so the same `instructionArray` can be used to create
+     * several independent computers.
+     */
+    public Intcode(long[] instructionArray, long[] inputs) {
+        mMemory = new Memory(instructionArray);
+        mDecodedInstructions = new int[instructionArray.length];
+        mGuardedCells = new boolean[instructionArray.length];
+        mInputs = new LongQueue();
+        provideInput(inputs);
+        initializeStates();
+    }
+
+    /**
+     * Copies the whole state of `parent`. The memory pages are shared
+     * copy-on-write (see Memory.fork).
+     */
+    Intcode(Intcode parent) {
+        mMemory = parent.mMemory.fork();
+        mDecodedInstructions = parent.mDecodedInstructions.clone();
+        mGuardedCells = parent.mGuardedCells.clone();
+        mInputs = new LongQueue(parent.mInputs);
+        mDefaultInput = parent.mDefaultInput;
+        mHasDefaultInput = parent.mHasDefaultInput;
+        mOutput = parent.mOutput;
+        mPosition = parent.mPosition;
+        mRelativeBase = parent.mRelativeBase;
+        mOpcode = parent.mOpcode;
+    }
+
+    /**
+     * Returns an independent computer in the same state as this one: memory,
+     * instruction pointer, relative base, pending inputs and last output. The
+     * memory is not copied up front; both computers share it and copy a page
+     * only when they first write to it, so forking is cheap even for a computer
+     * that has been running for a while.
+     */
+    public Intcode fork() {
+        return new Intcode(this);
+    }
+
+    /**
+     * Writes `value` directly into memory, e.g. to patch the program before
+     * running it.
+     */
+    public void setMemoryAt(long index, long value) {
+        write(mMemory, index, value, -1);
+    }
+
+    public int getCurrentOpcode() {
+        return mOpcode;
+    }
+
+    /**
+     * Records the instructions this computer executes from now on into `trace`,
+     * or stops recording if null. The trace is added to any exception a run
+     * throws, as a suppressed exception. While tracing, CompiledIntcode
+     * interprets. A trace records a single computer; a fork does not trace.
+     */
+    public void setTrace(Trace trace) {
+        mTrace = trace;
+    }
+
+    public Trace getTrace() {
+        return mTrace;
+    }
+
+    /**
+     * Appends every input this computer consumes from now on to `log`, whether
+     * queued, supplied or default, or stops logging if null. Forks do not
+     * inherit it.
+     */
+    public void setInputLog(InputLog log) {
+        mInputLog = log;
+    }
+
+    public void provideInput(long[] inputs) {
+        if (inputs == null) {
+            return;
+        }
+
+        mInputs.addAll(inputs, 0, inputs.length);
+    }
+
+    /**
+     * Queues `length` inputs of `inputs` starting at `offset`. The array is
+     * copied, so it can be reused for the next inputs.
+     */
+    public void provideInput(long[] inputs, int offset, int length) {
+        mInputs.addAll(inputs, offset, length);
+    }
+
+    /**
+     * Queues the remaining values of `inputs`, consuming them.
+     */
+    public void provideInput(LongBuffer inputs) {
+        mInputs.addAll(inputs);
+    }
+
+    /**
+     * Limits how many memory cells the program may use. Memory is allocated in
+     * pages as the program writes to it, so the limit applies to the cells
+     * actually touched, not to the highest address. Exceeding it throws a
+     * RuntimeException.
+     */
+    public void setMemoryLimit(long cells) {
+        mMemory.setLimit(cells);
+    }
+
+    /**
+     * Sets where inputs come from once the queued ones are used up: `supplier`
+     * is called each time the program executes INPUT, so it can compute the
+     * input from the latest state. Takes precedence over the default input.
+     * Forks do not inherit it.
+     */
+    public void setInputSupplier(LongSupplier supplier) {
+        mInputSupplier = supplier;
+    }
+
+    /**
+     * Set the default input in case no inputs are available.
+     */
+    public void setDefaultInput(long input) {
+        mDefaultInput = input;
+        mHasDefaultInput = true;
+    }
+
+    /**
+     * Runs the program until HALT code. Returns the final output.
+     */
+    public long run() {
+        startRun(false, false, null, null, 0);
+        return mOutput;
+    }
+
+    /**
+     * Runs the program only until the first output and returns it.
+     */
+    public long runUntilOutput() {
+        startRun(false, true, null, null, 0);
+        return mOutput;
+    }
+
+    /**
+     * Runs the program, passing every output to `sink` without leaving the
+     * interpreter, until it halts or executes an INPUT while no input is queued
+     * and neither an input supplier nor a default input was set. The sink must
+     * not run this computer.
+     *
+     * @return HALTED or NEEDS_INPUT.
+     */
+    public Status run(LongConsumer sink) {
+        return startRun(true, false, sink, null, 0);
+    }
+
+    /**
+     * Runs the program until it has written `count` outputs into `outputs`,
+     * halted, or executed an INPUT while no input is queued and neither an input
+     * supplier nor a default input was set. `getOutputCount()` then tells how
+     * many outputs were written.
+     *
+     * @return OUTPUT once the `count` outputs are written, or HALTED or
+     *         NEEDS_INPUT.
+     */
+    public Status runUntilOutputs(long[] outputs, int count) {
+        if (count < 1 || count > outputs.length) {
+            throw new IllegalArgumentException("Invalid output count (" + count + ")");
+        }
+
+        return startRun(true, false, null, outputs, count);
+    }
+
+    /**
+     * @return the number of outputs written by the last `runUntilOutputs`.
+     */
+    public int getOutputCount() {
+        return mOutputCount;
+    }
+
+    /**
+     * Checks if the program has terminated.
+     */
+    public boolean isHalt() {
+        return mOpcode == OP_HALT; // 0 if the program has not started
+    }
+
+    private Status startRun(boolean blockOnInput, boolean stopAtOutput, LongConsumer sink, long[] outputs,
+            int count) {
+        mBlockOnInput = blockOnInput;
+        mStopAtOutput = stopAtOutput;
+        mOutputSink = sink;
+        mOutputBatch = outputs;
+        mOutputBatchSize = count;
+        mOutputCount = 0;
+        if (mBlockedEvent != null) {
+            mBlockedEvent.commit();
+            mBlockedEvent = null;
+        }
+
+        RunEvent event = RUN_EVENT_TYPE.isEnabled() ? new RunEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        int startPosition = mPosition;
+        long startInstructions = executedInstructions();
+        try {
+            execute();
+        } catch (RuntimeException e) {
+            if (mTrace != null) {
+                e.addSuppressed(new RuntimeException("Last instructions executed:\n" + mTrace.dump()));
+            }
+            throw e;
+        } finally {
+            mOutputSink = null;
+            mOutputBatch = null;
+        }
+
+        Status status;
+        switch (mOpcode) {
+            case OP_HALT:
+                status = Status.HALTED;
+                break;
+            case OP_INPUT:
+                status = Status.NEEDS_INPUT;
+                break;
+            default:
+                status = Status.OUTPUT;
+                break;
+        }
+
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.startPosition = startPosition;
+                event.endPosition = mPosition;
+                event.status = status.name();
+                event.instructions = executedInstructions() - startInstructions;
+                event.commit();
+            }
+        }
+        if (status != Status.OUTPUT) {
+            endOutputBurst();
+        }
+        if (status == Status.NEEDS_INPUT && INPUT_BLOCKED_EVENT_TYPE.isEnabled()) {
+            InputBlockedEvent blocked = new InputBlockedEvent();
+            blocked.position = mPosition;
+            blocked.begin();
+            mBlockedEvent = blocked;
+        }
+
+        return status;
+    }
+
+    private void endOutputBurst() {
+        if (mBurstEvent != null) {
+            mBurstEvent.commit();
+            mBurstEvent = null;
+        }
+    }
+
+    private void initializeStates() {
+        mPosition = 0;
+        mRelativeBase = 0;
+        mDefaultInput = 0;
+        mOpcode = 0;
+    }
+
+    /**
+     * The interpreter loop. The program counter, relative base and memory are
+     * kept in locals and only written back to the fields when the loop exits.
+     * Each address is decoded once; the cached decoding is dropped by `write` if
+     * the program modifies that cell, or a cell a fused instruction relies on.
+     * A fused RELATIVEBASEOFFSET falls through into the case of the instruction
+     * it is fused with. An engine that counts what runs (see
+     * `countsDispatches`) is told about every dispatch before it runs.
+     */
+    @SuppressWarnings("fallthrough")
+    void execute() {
+        int pc = mPosition;
+        long relativeBase = mRelativeBase;
+        final Memory memory = mMemory;
+        final int[] decodedInstructions = mDecodedInstructions;
+        // The trace entries are numbered in a local too
+        final Trace trace = mTrace;
+        final long[] traceEntries = trace != null ? trace.open() : null;
+        long traceEntry = trace != null ? trace.getRecordedCount() - 1 : -1;
+        final boolean counting = countsDispatches();
+
+        try {
+            while (true) {
+                int decoded = pc < decodedInstructions.length ? decodedInstructions[pc] : 0;
+                if (decoded == 0) {
+                    decoded = fuse(memory, pc);
+                    if (pc < decodedInstructions.length) {
+                        decodedInstructions[pc] = decoded;
+                    }
+                }
+                if (traceEntries != null) {
+                    Trace.record(traceEntries, ++traceEntry, memory, pc, decoded, relativeBase);
+                }
+                if (counting) {
+                    countDispatch(memory, pc, decoded, relativeBase);
+                }
+                int opcode = Operation.opcode(decoded);
+                int mode0 = Operation.mode(decoded, 0);
+                int mode1 = Operation.mode(decoded, 1);
+                int mode2 = Operation.mode(decoded, 2);
+
+                // A fused relative base offset runs first, then falls through to
+                // the instruction that follows it
+                switch (opcode) {
+                    case OP_FUSED_RBO + OP_ADD:
+                        relativeBase += parameter(memory, pc + 1, Operation.mode(decoded, 3), relativeBase);
+                        pc += 2;
+                    case OP_ADD:
+                        write(memory, destination(memory, pc + 3, mode2, relativeBase),
+                                parameter(memory, pc + 1, mode0, relativeBase)
+                                        + parameter(memory, pc + 2, mode1, relativeBase), traceEntry);
+                        pc += 4;
+                        break;
+                    case OP_FUSED_RBO + OP_MULTIPLY:
+                        relativeBase += parameter(memory, pc + 1, Operation.mode(decoded, 3), relativeBase);
+                        pc += 2;
+                    case OP_MULTIPLY:
+                        write(memory, destination(memory, pc + 3, mode2, relativeBase),
+                                parameter(memory, pc + 1, mode0, relativeBase)
+                                        * parameter(memory, pc + 2, mode1, relativeBase), traceEntry);
+                        pc += 4;
+                        break;
+                    case OP_FUSED_RBO + OP_INPUT:
+                        relativeBase += parameter(memory, pc + 1, Operation.mode(decoded, 3), relativeBase);
+                        pc += 2;
+                    case OP_INPUT: {
+                        if (inputBlocked()) {
+                            return;
+                        }
+                        write(memory, destination(memory, pc + 1, mode0, relativeBase), nextInput(), traceEntry);
+                        pc += 2;
+                        break;
+                    }
+                    case OP_FUSED_RBO + OP_OUTPUT:
+                        relativeBase += parameter(memory, pc + 1, Operation.mode(decoded, 3), relativeBase);
+                        pc += 2;
+                    case OP_OUTPUT: {
+                        long output = parameter(memory, pc + 1, mode0, relativeBase);
+                        pc += 2;
+                        if (emitOutput(output)) {
+                            return;
+                        }
+                        break;
+                    }
+                    case OP_FUSED_RBO + OP_JUMPIFTRUE:
+                        relativeBase += parameter(memory, pc + 1, Operation.mode(decoded, 3), relativeBase);
+                        pc += 2;
+                    case OP_JUMPIFTRUE:
+                        if (parameter(memory, pc + 1, mode0, relativeBase) != 0L) {
+                            pc = toAddress(parameter(memory, pc + 2, mode1, relativeBase), pc);
+                        } else {
+                            pc += 3;
+                        }
+                        break;
+                    case OP_FUSED_RBO + OP_JUMPIFFALSE:
+                        relativeBase += parameter(memory, pc + 1, Operation.mode(decoded, 3), relativeBase);
+                        pc += 2;
+                    case OP_JUMPIFFALSE:
+                        if (parameter(memory, pc + 1, mode0, relativeBase) == 0L) {
+                            pc = toAddress(parameter(memory, pc + 2, mode1, relativeBase), pc);
+                        } else {
+                            pc += 3;
+                        }
+                        break;
+                    case OP_FUSED_RBO + OP_LESSTHAN:
+                        relativeBase += parameter(memory, pc + 1, Operation.mode(decoded, 3), relativeBase);
+                        pc += 2;
+                    case OP_LESSTHAN:
+                        write(memory, destination(memory, pc + 3, mode2, relativeBase),
+                                parameter(memory, pc + 1, mode0, relativeBase) < parameter(memory, pc + 2,
+                                        mode1, relativeBase) ? 1 : 0, traceEntry);
+                        pc += 4;
+                        break;
+                    case OP_FUSED_RBO + OP_EQUALS:
+                        relativeBase += parameter(memory, pc + 1, Operation.mode(decoded, 3), relativeBase);
+                        pc += 2;
+                    case OP_EQUALS:
+                        write(memory, destination(memory, pc + 3, mode2, relativeBase),
+                                parameter(memory, pc + 1, mode0, relativeBase) == parameter(memory, pc + 2,
+                                        mode1, relativeBase) ? 1 : 0, traceEntry);
+                        pc += 4;
+                        break;
+                    case OP_RELATIVEBASEOFFSET:
+                        relativeBase += parameter(memory, pc + 1, mode0, relativeBase);
+                        pc += 2;
+                        break;
+                    case OP_LESSTHAN_JUMPIFTRUE:
+                    case OP_LESSTHAN_JUMPIFFALSE:
+                    case OP_EQUALS_JUMPIFTRUE:
+                    case OP_EQUALS_JUMPIFFALSE: {
+                        long first = parameter(memory, pc + 1, mode0, relativeBase);
+                        long second = parameter(memory, pc + 2, mode1, relativeBase);
+                        boolean condition = opcode == OP_LESSTHAN_JUMPIFTRUE || opcode == OP_LESSTHAN_JUMPIFFALSE
+                                ? first < second
+                                : first == second;
+                        write(memory, destination(memory, pc + 3, mode2, relativeBase), condition ? 1 : 0, traceEntry);
+                        if (decodedInstructions[pc] == 0) {
+                            // The comparison overwrote the jump, which must be decoded again
+                            pc += 4;
+                        } else if (condition == (opcode == OP_LESSTHAN_JUMPIFTRUE || opcode == OP_EQUALS_JUMPIFTRUE)) {
+                            pc = toAddress(parameter(memory, pc + 6, Operation.mode(decoded, 3), relativeBase), pc + 4);
+                        } else {
+                            pc += 7;
+                        }
+                        break;
+                    }
+                    case OP_HALT:
+                        mOpcode = OP_HALT;
+                        return;
+                    default:
+                        throw new RuntimeException("Invalid instruction (" + memory.read(pc) + ") at position " + pc);
+                }
+            }
+        } finally {
+            mPosition = pc;
+            mRelativeBase = relativeBase;
+            if (trace != null) {
+                trace.close(traceEntry + 1);
+            }
+        }
+    }
+
+    /**
+     * @return the instruction `decoded` dispatches first, packed like a plain
+     *         one (see Operation.pack).
+     */
+    static int firstOf(int decoded) {
+        int opcode = Operation.opcode(decoded);
+        if (opcode > OP_FUSED_RBO) {
+            return Operation.withMode(Operation.withOpcode(decoded, OP_RELATIVEBASEOFFSET), 0,
+                    Operation.mode(decoded, 3));
+        } else if (opcode >= OP_LESSTHAN_JUMPIFTRUE && opcode <= OP_EQUALS_JUMPIFFALSE) {
+            return Operation.withOpcode(decoded, opcode <= OP_LESSTHAN_JUMPIFFALSE ? OP_LESSTHAN : OP_EQUALS);
+        }
+
+        return decoded;
+    }
+
+    /**
+     * @return the instruction a fused `decoded` dispatches second, packed with
+     *         the modes of its parameters, or 0 if `decoded` is not fused.
+     */
+    static int secondOf(int decoded) {
+        int opcode = Operation.opcode(decoded);
+        if (opcode > OP_FUSED_RBO) {
+            return Operation.withOpcode(decoded, opcode - OP_FUSED_RBO);
+        } else if (opcode >= OP_LESSTHAN_JUMPIFTRUE && opcode <= OP_EQUALS_JUMPIFFALSE) {
+            // It tests the cell the comparison writes, in the same mode
+            int jump = Operation.withOpcode(decoded,
+                    (opcode - OP_LESSTHAN_JUMPIFTRUE) % 2 == 0 ? OP_JUMPIFTRUE : OP_JUMPIFFALSE);
+            jump = Operation.withMode(jump, 0, Operation.mode(decoded, 2));
+            return Operation.withMode(jump, 1, Operation.mode(decoded, 3));
+        }
+
+        return 0;
+    }
+
+    /**
+     * Decodes the instruction at `pc`, fusing it with the next one for these
+     * pairs:
+     * - LESSTHAN/EQUALS followed by JUMPIFTRUE/JUMPIFFALSE testing the cell the
+     *   comparison just wrote,
+     * - RELATIVEBASEOFFSET followed by any instruction but HALT.
+     * The cells of the second instruction that the fusion relies on are marked
+     * as guarded so that writing them drops the fused decoding.
+     */
+    private int fuse(Memory memory, int pc) {
+        int decoded = Operation.pack(memory.read(pc));
+        int opcode = Operation.opcode(decoded);
+        if (opcode == OP_RELATIVEBASEOFFSET && pc + 2 < mGuardedCells.length) {
+            int next = Operation.pack(memory.read(pc + 2));
+            int nextOpcode = Operation.opcode(next);
+            if (nextOpcode >= OP_ADD && nextOpcode <= OP_EQUALS) {
+                mGuardedCells[pc + 2] = true;
+                return Operation.withMode(Operation.withOpcode(next, OP_FUSED_RBO + nextOpcode), 3,
+                        Operation.mode(decoded, 0));
+            }
+        } else if ((opcode == OP_LESSTHAN || opcode == OP_EQUALS) && pc + 5 < mGuardedCells.length) {
+            int next = Operation.pack(memory.read(pc + 4));
+            int nextOpcode = Operation.opcode(next);
+            int destinationMode = Operation.mode(decoded, 2);
+            if ((nextOpcode == OP_JUMPIFTRUE || nextOpcode == OP_JUMPIFFALSE) && destinationMode != MODE_IMMEDIATE
+                    && Operation.mode(next, 0) == destinationMode && memory.read(pc + 5) == memory.read(pc + 3)) {
+                mGuardedCells[pc + 3] = true;
+                mGuardedCells[pc + 4] = true;
+                mGuardedCells[pc + 5] = true;
+                int fusedOpcode = (opcode == OP_LESSTHAN ? OP_LESSTHAN_JUMPIFTRUE : OP_EQUALS_JUMPIFTRUE)
+                        + (nextOpcode == OP_JUMPIFFALSE ? 1 : 0);
+                return Operation.withMode(Operation.withOpcode(decoded, fusedOpcode), 3, Operation.mode(next, 1));
+            }
+        }
+
+        return decoded;
+    }
+
+    void queueInput(long input) {
+        mInputs.add(input);
+    }
+
+    long nextInput() {
+        endOutputBurst();
+        long input;
+        if (!mInputs.isEmpty()) {
+            input = mInputs.poll();
+        } else {
+            input = mInputSupplier != null ? mInputSupplier.getAsLong() : mDefaultInput;
+        }
+
+        if (mInputLog != null) {
+            mInputLog.add(input);
+        }
+        return input;
+    }
+
+    /**
+     * @return true if the run has to stop at this INPUT for lack of inputs.
+     */
+    boolean inputBlocked() {
+        if (mBlockOnInput && mInputs.isEmpty() && mInputSupplier == null && !mHasDefaultInput) {
+            mOpcode = OP_INPUT;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Hands `output` over as the current run asks.
+     *
+     * @return true if the run has to stop at this output.
+     */
+    boolean emitOutput(long output) {
+        mOutput = output;
+        mOpcode = OP_OUTPUT;
+        if (mBurstEvent == null && OUTPUT_BURST_EVENT_TYPE.isEnabled()) {
+            OutputBurstEvent burst = new OutputBurstEvent();
+            burst.begin();
+            burst.first = output;
+            mBurstEvent = burst;
+        }
+        if (mBurstEvent != null) {
+            mBurstEvent.count++;
+            mBurstEvent.last = output;
+        }
+        if (mOutputSink != null) {
+            mOutputSink.accept(output);
+            return false;
+        }
+        if (mOutputBatch != null) {
+            mOutputBatch[mOutputCount++] = output;
+            return mOutputCount == mOutputBatchSize;
+        }
+
+        return mStopAtOutput;
+    }
+
+    // State accessors for engines built on top of this one (see CompiledIntcode)
+    // and for Checkpoint
+
+    /**
+     * @return number of instructions executed so far, if this engine counts
+     *         them (see InstrumentedIntcode), else 0.
+     */
+    long executedInstructions() {
+        return 0;
+    }
+
+    /**
+     * @return whether `execute` calls `countDispatch`, read once per run.
+     */
+    boolean countsDispatches() {
+        return false;
+    }
+
+    /**
+     * Called by `execute` before it runs the instruction at `pc`, decoded as
+     * `decoded`, which may be fused with the next one (see `fuse`).
+     */
+    void countDispatch(Memory memory, int pc, int decoded, long relativeBase) {
+    }
+
+    Memory memory() {
+        return mMemory;
+    }
+
+    /**
+     * Forgets everything derived from the memory contents, after they were
+     * replaced as a whole.
+     */
+    void invalidateCode() {
+        Arrays.fill(mDecodedInstructions, 0);
+    }
+
+    long load(long index) {
+        return mMemory.read(index);
+    }
+
+    void store(long index, long value) {
+        write(mMemory, index, value, -1);
+    }
+
+    int position() {
+        return mPosition;
+    }
+
+    void setPosition(int position) {
+        mPosition = position;
+    }
+
+    long relativeBase() {
+        return mRelativeBase;
+    }
+
+    void setRelativeBase(long relativeBase) {
+        mRelativeBase = relativeBase;
+    }
+
+    long output() {
+        return mOutput;
+    }
+
+    void setOutput(long output) {
+        mOutput = output;
+    }
+
+    void setOpcode(int opcode) {
+        mOpcode = opcode;
+    }
+
+    long defaultInput() {
+        return mDefaultInput;
+    }
+
+    boolean hasDefaultInput() {
+        return mHasDefaultInput;
+    }
+
+    void setDefaultInput(long input, boolean isSet) {
+        mDefaultInput = input;
+        mHasDefaultInput = isSet;
+    }
+
+    long[] pendingInputs() {
+        return mInputs.toArray();
+    }
+
+    void setPendingInputs(long[] inputs) {
+        mInputs.clear();
+        provideInput(inputs);
+    }
+
+    /**
+     * Reads the value of a parameter stored at `address`, applying its mode.
+     */
+    private long parameter(Memory memory, int address, int mode, long relativeBase) {
+        long paramValue = memory.read(address);
+        switch (mode) {
+            case MODE_POSITION:
+                return memory.read(paramValue);
+            case MODE_IMMEDIATE:
+                return paramValue;
+            case MODE_RELATIVE:
+                return memory.read(paramValue + relativeBase);
+            default:
+                throw new RuntimeException("Invalid parameter mode (" + mode + ") at position " + address);
+        }
+    }
+
+    /**
+     * Resolves the address a write parameter stored at `address` points to.
+     */
+    private long destination(Memory memory, int address, int mode, long relativeBase) {
+        long paramValue = memory.read(address);
+        return mode == MODE_RELATIVE ? paramValue + relativeBase : paramValue;
+    }
+
+    /**
+     * @param traceEntry number of the trace entry writing, -1 if the host is.
+     */
+    private void write(Memory memory, long index, long value, long traceEntry) {
+        if (traceEntry >= 0) {
+            mTrace.recordWrite(traceEntry, index, value);
+        }
+        if (index < 0 || index >= mDecodedInstructions.length) {
+            memory.write(index, value);
+            return;
+        }
+
+        int address = (int) index;
+        memory.write(index, value);
+
+        // Self-modifying code: the cell has to be decoded again before it runs,
+        // as well as fused instructions starting up to 5 cells before it
+        if (mDecodedInstructions[address] != 0) {
+            mDecodedInstructions[address] = 0;
+        }
+        if (mGuardedCells[address]) {
+            Arrays.fill(mDecodedInstructions, Math.max(address - 5, 0), address, 0);
+        }
+        codeWritten(address);
+    }
+
+    /**
+     * Called after every write into the cells of the original program, which
+     * may hold code.
+     */
+    void codeWritten(int address) {
+    }
+
+    static int toAddress(long index, int position) {
+        if (index < 0 || index >= Integer.MAX_VALUE) {
+            throw new RuntimeException("Invalid memory address (" + index + ") at position " + position);
+        }
+
+        return (int) index;
+    }
+}
@@ -0,0 +1,108 @@
+package intcode;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * FIFO queue of primitive longs in a growable ring buffer, so that queuing and
+ * taking values never boxes them.
+ */
+final class LongQueue {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] mElements;
+    // Index of the first element, and number of elements
+    private int mHead;
+    private int mSize;
+
+    LongQueue() {
+        mElements = new long[INITIAL_CAPACITY];
+    }
+
+    LongQueue(LongQueue other) {
+        mElements = Arrays.copyOf(other.toArray(), other.mElements.length);
+        mSize = other.mSize;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Removes and returns the first element, which must exist.
+     */
+    long poll() {
+        long value = mElements[mHead];
+        mHead = (mHead + 1) & (mElements.length - 1);
+        mSize--;
+        return value;
+    }
+
+    void add(long value) {
+        if (mSize == mElements.length) {
+            grow(mSize + 1);
+        }
+        mElements[(mHead + mSize) & (mElements.length - 1)] = value;
+        mSize++;
+    }
+
+    void addAll(long[] values, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > values.length - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length
+                    + ") out of bounds for length " + values.length);
+        }
+
+        ensureCapacity(length);
+        int tail = (mHead + mSize) & (mElements.length - 1);
+        int firstPart = Math.min(length, mElements.length - tail);
+        System.arraycopy(values, offset, mElements, tail, firstPart);
+        System.arraycopy(values, offset + firstPart, mElements, 0, length - firstPart);
+        mSize += length;
+    }
+
+    /**
+     * Adds the remaining values of `values`, consuming them.
+     */
+    void addAll(LongBuffer values) {
+        int length = values.remaining();
+        ensureCapacity(length);
+        int tail = (mHead + mSize) & (mElements.length - 1);
+        int firstPart = Math.min(length, mElements.length - tail);
+        values.get(mElements, tail, firstPart);
+        values.get(mElements, 0, length - firstPart);
+        mSize += length;
+    }
+
+    void clear() {
+        mHead = 0;
+        mSize = 0;
+    }
+
+    long[] toArray() {
+        long[] array = new long[mSize];
+        int firstPart = Math.min(mSize, mElements.length - mHead);
+        System.arraycopy(mElements, mHead, array, 0, firstPart);
+        System.arraycopy(mElements, 0, array, firstPart, mSize - firstPart);
+        return array;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (extra > mElements.length - mSize) {
+            grow(Math.addExact(mSize, extra));
+        }
+    }
+
+    /**
+     * Reallocates the elements to a power of two capacity of at least `capacity`,
+     * moving the first element to index 0.
+     */
+    private void grow(int capacity) {
+        int newCapacity = Integer.highestOneBit(capacity - 1) << 1;
+        if (newCapacity <= 0) {
+            throw new RuntimeException("Too many queued inputs (" + capacity + ")");
+        }
+
+        mElements = Arrays.copyOf(toArray(), newCapacity);
+        mHead = 0;
+    }
+}
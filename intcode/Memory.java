@@ -0,0 +1,333 @@
+package intcode;
+
+import java.util.Arrays;
+
+/**
+ * Sparse 64-bit memory of an Intcode computer. Cells live in zero-filled pages
+ * of `PAGE_SIZE` longs that are only allocated when first written, so the cost
+ * of memory scales with the pages a program touches rather than with the
+ * highest address it uses. Reading an untouched cell returns 0.
+ *
+ * Pages of low addresses are found through an array, the others (e.g. far
+ * relative-mode writes) through a hash table keyed by primitive page index, so
+ * that no access allocates.
+ *
+ * A forked memory shares all its pages with its parent. Each side copies a
+ * shared page the first time it writes to it (copy-on-write), and only writes
+ * in place to the pages it owns.
+ *
+ * Pages written since the last `markClean` are dirty, so that a Checkpoint only
+ * has to save those.
+ */
+final class Memory {
+    static final int PAGE_BITS = 10;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // Pages below this index are kept in `mPages`, as are all the pages of
+    // the image the memory starts from
+    private static final int DIRECT_PAGES = 1 << 12;
+
+    static final long DEFAULT_LIMIT = 1L << 27;
+
+    // Bits of `mPageStates`: the page may be written in place, and it was
+    // written since the last checkpoint
+    private static final byte OWNED = 1;
+    private static final byte DIRTY = 2;
+    private static final byte WRITABLE = OWNED | DIRTY;
+
+    private long[][] mPages;
+    private byte[] mPageStates;
+    private FarPages mFarPages;
+    private long mPageCount;
+    private long mPageLimit;
+    // Checkpoint that holds every page that is not dirty
+    private Object mCleanFor;
+
+    Memory(long[] image) {
+        int pageNumber = Math.max((image.length + PAGE_MASK) >>> PAGE_BITS, 1);
+        mPages = new long[pageNumber][];
+        mPageStates = new byte[pageNumber];
+        mFarPages = new FarPages();
+        setLimit(DEFAULT_LIMIT);
+
+        for (int i = 0; i < pageNumber; i++) {
+            int start = i << PAGE_BITS;
+            long[] page = newPage(i);
+            System.arraycopy(image, start, page, 0, Math.min(PAGE_SIZE, image.length - start));
+            mPages[i] = page;
+            mPageStates[i] = WRITABLE;
+        }
+    }
+
+    private Memory(Memory parent) {
+        mPages = parent.mPages.clone();
+        mPageStates = parent.mPageStates.clone();
+        mFarPages = new FarPages(parent.mFarPages);
+        mPageCount = parent.mPageCount;
+        mPageLimit = parent.mPageLimit;
+    }
+
+    /**
+     * @return a copy of this memory that shares every page with it until either
+     *         side writes to the page.
+     */
+    Memory fork() {
+        clearState(mPageStates, OWNED);
+        clearState(mFarPages.mStates, OWNED);
+        return new Memory(this);
+    }
+
+    /**
+     * Sets the maximum number of cells the memory may hold, rounded up to whole
+     * pages.
+     */
+    void setLimit(long cells) {
+        mPageLimit = (cells + PAGE_MASK) >>> PAGE_BITS;
+    }
+
+    /**
+     * @return the number of cells currently allocated.
+     */
+    long allocatedCells() {
+        return mPageCount << PAGE_BITS;
+    }
+
+    long read(long index) {
+        long pageIndex = index >>> PAGE_BITS;
+        if (pageIndex < mPages.length) {
+            long[] page = mPages[(int) pageIndex];
+            return page == null ? 0L : page[(int) index & PAGE_MASK];
+        }
+
+        checkAddress(index);
+        int slot = mFarPages.find(pageIndex);
+        return slot < 0 ? 0L : mFarPages.mPages[slot][(int) index & PAGE_MASK];
+    }
+
+    void write(long index, long value) {
+        long pageIndex = index >>> PAGE_BITS;
+        if (pageIndex < mPages.length && mPageStates[(int) pageIndex] == WRITABLE) {
+            mPages[(int) pageIndex][(int) index & PAGE_MASK] = value;
+            return;
+        }
+
+        writablePage(index)[(int) index & PAGE_MASK] = value;
+    }
+
+    /**
+     * @return the page holding `index`, allocated or copied from a shared page
+     *         if needed, and marked dirty.
+     */
+    private long[] writablePage(long index) {
+        checkAddress(index);
+        long pageIndex = index >>> PAGE_BITS;
+        if (pageIndex >= mPages.length && pageIndex >= DIRECT_PAGES) {
+            int slot = mFarPages.find(pageIndex);
+            if (slot < 0) {
+                long[] page = newPage(pageIndex);
+                slot = mFarPages.add(pageIndex);
+                mFarPages.mPages[slot] = page;
+            } else if ((mFarPages.mStates[slot] & OWNED) == 0) {
+                mFarPages.mPages[slot] = mFarPages.mPages[slot].clone();
+            }
+            mFarPages.mStates[slot] = WRITABLE;
+            return mFarPages.mPages[slot];
+        }
+
+        if (pageIndex >= mPages.length) {
+            int length = (int) Math.min(Math.max(pageIndex + 1, mPages.length * 2L), DIRECT_PAGES);
+            mPages = Arrays.copyOf(mPages, length);
+            mPageStates = Arrays.copyOf(mPageStates, length);
+        }
+
+        int i = (int) pageIndex;
+        if ((mPageStates[i] & OWNED) == 0) {
+            mPages[i] = mPages[i] == null ? newPage(i) : mPages[i].clone();
+        }
+        mPageStates[i] = WRITABLE;
+        return mPages[i];
+    }
+
+    // Checkpoint support
+
+    /**
+     * @return true if every page that is not dirty is already saved in `owner`.
+     */
+    boolean isCleanFor(Object owner) {
+        return mCleanFor == owner;
+    }
+
+    /**
+     * @return the indices of the allocated pages, or only of the dirty ones.
+     */
+    long[] pageIndices(boolean dirtyOnly) {
+        int count = 0;
+        long[] indices = new long[mPages.length + mFarPages.mSize];
+        for (int i = 0; i < mPages.length; i++) {
+            if (mPages[i] != null && (!dirtyOnly || (mPageStates[i] & DIRTY) != 0)) {
+                indices[count++] = i;
+            }
+        }
+        for (int slot = 0; slot < mFarPages.mKeys.length; slot++) {
+            if (mFarPages.mKeys[slot] != 0 && (!dirtyOnly || (mFarPages.mStates[slot] & DIRTY) != 0)) {
+                indices[count++] = mFarPages.mKeys[slot];
+            }
+        }
+
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * @return the contents of a page, which must not be modified, or null if it
+     *         is not allocated.
+     */
+    long[] page(long pageIndex) {
+        if (pageIndex < mPages.length) {
+            return mPages[(int) pageIndex];
+        }
+
+        int slot = mFarPages.find(pageIndex);
+        return slot < 0 ? null : mFarPages.mPages[slot];
+    }
+
+    /**
+     * Marks every page as saved in `owner`.
+     */
+    void markClean(Object owner) {
+        clearState(mPageStates, DIRTY);
+        clearState(mFarPages.mStates, DIRTY);
+        mCleanFor = owner;
+    }
+
+    /**
+     * Drops every page, leaving an all-zero memory.
+     */
+    void clear() {
+        Arrays.fill(mPages, null);
+        Arrays.fill(mPageStates, (byte) 0);
+        mFarPages = new FarPages();
+        mPageCount = 0;
+        mCleanFor = null;
+    }
+
+    /**
+     * Replaces the contents of a page.
+     */
+    void putPage(long pageIndex, long[] contents) {
+        System.arraycopy(contents, 0, writablePage(pageIndex << PAGE_BITS), 0, PAGE_SIZE);
+    }
+
+    private long[] newPage(long pageIndex) {
+        if (mPageCount >= mPageLimit) {
+            throw new RuntimeException("Memory limit of " + (mPageLimit << PAGE_BITS) + " cells exceeded");
+        }
+
+        mPageCount++;
+        MemoryGrowthEvent event = new MemoryGrowthEvent();
+        if (event.shouldCommit()) {
+            event.pageIndex = pageIndex;
+            event.allocatedCells = allocatedCells();
+            event.allocatedBytes = allocatedCells() * Long.BYTES;
+            event.commit();
+        }
+
+        return new long[PAGE_SIZE];
+    }
+
+    private static void clearState(byte[] states, byte bit) {
+        for (int i = 0; i < states.length; i++) {
+            states[i] &= ~bit;
+        }
+    }
+
+    private static void checkAddress(long index) {
+        if (index < 0) {
+            throw new RuntimeException("Invalid memory address (" + index + ")");
+        }
+    }
+
+    /**
+     * Open-addressing hash table of the pages beyond `mPages`, with their
+     * states. Keys are never 0, which marks an empty slot.
+     */
+    private static final class FarPages {
+        private static final int INITIAL_CAPACITY = 16;
+
+        long[] mKeys;
+        long[][] mPages;
+        byte[] mStates;
+        int mSize;
+
+        FarPages() {
+            mKeys = new long[INITIAL_CAPACITY];
+            mPages = new long[INITIAL_CAPACITY][];
+            mStates = new byte[INITIAL_CAPACITY];
+        }
+
+        FarPages(FarPages other) {
+            mKeys = other.mKeys.clone();
+            mPages = other.mPages.clone();
+            mStates = other.mStates.clone();
+            mSize = other.mSize;
+        }
+
+        /**
+         * @return the slot of `pageIndex`, or -1 if it is not in the table.
+         */
+        int find(long pageIndex) {
+            int mask = mKeys.length - 1;
+            for (int slot = hash(pageIndex) & mask;; slot = (slot + 1) & mask) {
+                if (mKeys[slot] == pageIndex) {
+                    return slot;
+                }
+                if (mKeys[slot] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * @return the new slot of `pageIndex`, which must not be in the table.
+         */
+        int add(long pageIndex) {
+            if (2 * (mSize + 1) > mKeys.length) {
+                grow();
+            }
+            mSize++;
+            return insert(pageIndex);
+        }
+
+        private int insert(long pageIndex) {
+            int mask = mKeys.length - 1;
+            int slot = hash(pageIndex) & mask;
+            while (mKeys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            mKeys[slot] = pageIndex;
+            return slot;
+        }
+
+        private void grow() {
+            long[] keys = mKeys;
+            long[][] pages = mPages;
+            byte[] states = mStates;
+            mKeys = new long[keys.length * 2];
+            mPages = new long[keys.length * 2][];
+            mStates = new byte[keys.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    int slot = insert(keys[i]);
+                    mPages[slot] = pages[i];
+                    mStates[slot] = states[i];
+                }
+            }
+        }
+
+        private static int hash(long pageIndex) {
+            long h = pageIndex * 0x9e3779b97f4a7c15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
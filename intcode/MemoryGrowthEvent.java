@@ -0,0 +1,25 @@
+package intcode;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a memory page allocated by an Intcode computer.
+ */
+@Name("intcode.MemoryGrowth")
+@Label("Intcode Memory Growth")
+@Category("Intcode")
+final class MemoryGrowthEvent extends Event {
+    @Label("Page Index")
+    long pageIndex;
+
+    @Label("Allocated Cells")
+    long allocatedCells;
+
+    @Label("Allocated Memory")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,151 @@
+package intcode;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs Intcode computers wired together with channels: each computer reads its
+ * inputs from one channel and sends its outputs to another.
+ *
+ * A computer does not hold a thread while it waits for input. It runs until it
+ * executes an INPUT with nothing left to read, then gives its thread back, and
+ * it is scheduled again as soon as a value is sent to its input channel. Many
+ * thousands of computers can therefore share a few threads.
+ *
+ * Computers run on the given Executor, or, without one, one at a time on the
+ * thread calling `await`.
+ */
+public final class Network {
+    private final Executor mExecutor;
+    // Computers ready to run when there is no executor
+    private final ArrayDeque<Machine> mReady;
+    // Computers scheduled or running
+    private final AtomicInteger mActive;
+    // First exception or error a computer ran into
+    private final AtomicReference<Throwable> mFailure;
+
+    public Network() {
+        this(null);
+    }
+
+    public Network(Executor executor) {
+        mExecutor = executor;
+        mReady = new ArrayDeque<>();
+        mActive = new AtomicInteger();
+        mFailure = new AtomicReference<>();
+    }
+
+    /**
+     * Adds `intcode` to the network and schedules it. The computer must have
+     * neither an input supplier nor a default input, since it waits on `input`,
+     * and must not be run by anything else.
+     */
+    public void connect(Intcode intcode, Channel input, Channel output) {
+        Machine machine = new Machine(intcode, input, output);
+        input.setReader(machine);
+        machine.wake();
+    }
+
+    /**
+     * Waits until no computer can make progress: each one has halted, waits on
+     * an empty channel or failed. Then throws what the first computer that
+     * failed threw, if any, errors included.
+     */
+    public void await() throws InterruptedException {
+        if (mExecutor == null) {
+            Machine machine;
+            while ((machine = pollReady()) != null) {
+                machine.run();
+            }
+        } else {
+            synchronized (mActive) {
+                while (mActive.get() > 0) {
+                    mActive.wait();
+                }
+            }
+        }
+
+        Throwable failure = mFailure.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    private synchronized Machine pollReady() {
+        return mReady.poll();
+    }
+
+    private void schedule(Machine machine) {
+        mActive.incrementAndGet();
+        if (mExecutor == null) {
+            synchronized (this) {
+                mReady.add(machine);
+            }
+        } else {
+            mExecutor.execute(machine);
+        }
+    }
+
+    private void finished() {
+        if (mActive.decrementAndGet() == 0) {
+            synchronized (mActive) {
+                mActive.notifyAll();
+            }
+        }
+    }
+
+    final class Machine implements Runnable {
+        private final Intcode mIntcode;
+        private final Channel mInput;
+        private final LongConsumer mOutput;
+        // Set while the computer is scheduled or running, so that it never runs
+        // on two threads at once
+        private final AtomicBoolean mScheduled;
+
+        Machine(Intcode intcode, Channel input, Channel output) {
+            mIntcode = intcode;
+            mInput = input;
+            mOutput = output::send;
+            mScheduled = new AtomicBoolean();
+        }
+
+        void wake() {
+            if (mScheduled.compareAndSet(false, true)) {
+                schedule(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    if (mIntcode.run(mOutput) == Intcode.Status.HALTED) {
+                        return;
+                    }
+                    if (mInput.moveTo(mIntcode)) {
+                        continue;
+                    }
+
+                    // Values sent since the channel was found empty may not have
+                    // woken this computer up, as it was still scheduled
+                    mScheduled.set(false);
+                    if (mInput.isEmpty() || !mScheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                // Thrown by `await`, rather than lost on an executor thread
+                mFailure.compareAndSet(null, e);
+            } finally {
+                finished();
+            }
+        }
+    }
+}
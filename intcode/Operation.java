@@ -0,0 +1,175 @@
+package intcode;
+
+import java.util.function.LongUnaryOperator;
+
+public class Operation {
+    // Layout of a packed instruction: bits 0-7 opcode, then 4 bits per mode,
+    // with a marker bit so that a packed value is never 0.
+    private static final int MODE_SHIFT = 8;
+    private static final int MODE_BITS = 4;
+    private static final int MODE_MASK = (1 << MODE_BITS) - 1;
+    private static final int DECODED = 1 << 30;
+
+    private Operation() {
+    }
+
+    /**
+     * Decodes `instruction` into a single non-zero int holding the opcode and the
+     * three parameter modes. Negative instructions decode to opcode 0, which is
+     * never valid.
+     */
+    public static int pack(long instruction) {
+        if (instruction < 0) {
+            return DECODED;
+        }
+
+        int opcode = (int) (instruction % 100);
+        int packed = DECODED | opcode;
+        long modes = instruction / 100;
+        for (int i = 0; i < 3; i++) {
+            packed |= (int) (modes % 10) << (MODE_SHIFT + i * MODE_BITS);
+            modes /= 10;
+        }
+
+        return packed;
+    }
+
+    public static int opcode(int packed) {
+        return packed & 0xFF;
+    }
+
+    /**
+     * Replaces the opcode of a packed instruction, e.g. by a fused one.
+     */
+    public static int withOpcode(int packed, int opcode) {
+        return (packed & ~0xFF) | opcode;
+    }
+
+    /**
+     * @return the mode of the `index`-th (0-based) parameter of a packed
+     *         instruction.
+     */
+    public static int mode(int packed, int index) {
+        return (packed >>> (MODE_SHIFT + index * MODE_BITS)) & MODE_MASK;
+    }
+
+    /**
+     * Sets the mode of the `index`-th parameter. Index 3 is not used by plain
+     * instructions and is free for fused ones.
+     */
+    public static int withMode(int packed, int index, int mode) {
+        int shift = MODE_SHIFT + index * MODE_BITS;
+        return (packed & ~(MODE_MASK << shift)) | ((mode & MODE_MASK) << shift);
+    }
+
+    /**
+     * @return the name of an opcode, e.g. "ADD", or null if it is not valid.
+     */
+    public static String name(int opcode) {
+        switch (opcode) {
+            case Intcode.OP_ADD:
+                return "ADD";
+            case Intcode.OP_MULTIPLY:
+                return "MULTIPLY";
+            case Intcode.OP_INPUT:
+                return "INPUT";
+            case Intcode.OP_OUTPUT:
+                return "OUTPUT";
+            case Intcode.OP_JUMPIFTRUE:
+                return "JUMPIFTRUE";
+            case Intcode.OP_JUMPIFFALSE:
+                return "JUMPIFFALSE";
+            case Intcode.OP_LESSTHAN:
+                return "LESSTHAN";
+            case Intcode.OP_EQUALS:
+                return "EQUALS";
+            case Intcode.OP_RELATIVEBASEOFFSET:
+                return "RELATIVEBASEOFFSET";
+            case Intcode.OP_HALT:
+                return "HALT";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the number of parameters of a valid opcode.
+     */
+    public static int parameterCount(int opcode) {
+        switch (opcode) {
+            case Intcode.OP_ADD:
+            case Intcode.OP_MULTIPLY:
+            case Intcode.OP_LESSTHAN:
+            case Intcode.OP_EQUALS:
+                return 3;
+            case Intcode.OP_JUMPIFTRUE:
+            case Intcode.OP_JUMPIFFALSE:
+                return 2;
+            case Intcode.OP_HALT:
+                return 0;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * @return the value of the parameter `parameter` in `mode`, read as the
+     *         interpreter does but without throwing: an invalid mode or
+     *         address, which the interpreter stops at, reads 0.
+     */
+    static long operand(Memory memory, long parameter, int mode, long relativeBase) {
+        switch (mode) {
+            case Intcode.MODE_POSITION:
+                return parameter < 0 ? 0 : memory.read(parameter);
+            case Intcode.MODE_IMMEDIATE:
+                return parameter;
+            case Intcode.MODE_RELATIVE:
+                return parameter + relativeBase < 0 ? 0 : memory.read(parameter + relativeBase);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return the instruction at `address` in assembly form, e.g.
+     *         "ADD [12], 3, [rb+1]" for position, immediate and relative mode
+     *         parameters.
+     */
+    static String disassemble(Memory memory, int address) {
+        return disassemble(memory::read, address);
+    }
+
+    /**
+     * Same as above, reading the cells from `cells`.
+     */
+    static String disassemble(LongUnaryOperator cells, long address) {
+        long instruction = cells.applyAsLong(address);
+        int packed = pack(instruction);
+        String name = name(opcode(packed));
+        if (name == null) {
+            return "DATA " + instruction;
+        }
+
+        StringBuilder text = new StringBuilder(name);
+        for (int i = 0; i < parameterCount(opcode(packed)); i++) {
+            long parameter = cells.applyAsLong(address + 1 + i);
+            text.append(i == 0 ? " " : ", ");
+            switch (mode(packed, i)) {
+                case Intcode.MODE_POSITION:
+                    text.append('[').append(parameter).append(']');
+                    break;
+                case Intcode.MODE_IMMEDIATE:
+                    text.append(parameter);
+                    break;
+                case Intcode.MODE_RELATIVE:
+                    text.append("[rb").append(parameter < 0 ? "" : "+").append(parameter).append(']');
+                    break;
+                default:
+                    text.append('?').append(parameter);
+                    break;
+            }
+        }
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package intcode;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning consecutive outputs of an Intcode computer,
+ * from the first one until the program reads an input or stops running.
+ */
+@Name("intcode.OutputBurst")
+@Label("Intcode Output Burst")
+@Category("Intcode")
+final class OutputBurstEvent extends Event {
+    @Label("Outputs")
+    int count;
+
+    @Label("First Output")
+    long first;
+
+    @Label("Last Output")
+    long last;
+}
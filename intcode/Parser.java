@@ -0,0 +1,158 @@
+package intcode;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+public class Parser {
+    // Directory of binary images of the programs already parsed (see
+    // ProgramImage), or null to always parse. Set with -Dintcode.cache=<dir>
+    private static final String CACHE_DIRECTORY = System.getProperty("intcode.cache");
+
+    private Parser() {
+    }
+
+    /**
+     * Reads an Intcode program, i.e. comma-separated integers, straight from the
+     * memory-mapped file into a long[], without creating a String per number.
+     * Whitespace around the numbers is ignored, and so is one comma after the
+     * last number, which some editors leave.
+     *
+     * With a cache directory, the program is parsed only the first time: it is
+     * then saved as a binary image named after the path of the file, which
+     * later loads read instead if the file still has the same size and
+     * modification time. Otherwise the text is read, and the image is still
+     * used if the text has the same CRC32C, e.g. after a fresh checkout.
+     */
+    public static long[] loadProgram(String inputFilePath) throws IOException {
+        Path input = Paths.get(inputFilePath);
+        Path image = CACHE_DIRECTORY == null ? null : Paths.get(CACHE_DIRECTORY, imageName(input));
+        BasicFileAttributes attributes = Files.readAttributes(input, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        boolean cached = image != null && Files.isRegularFile(image);
+        if (cached) {
+            long[] program = ProgramImage.read(image, attributes.size(), modified, ProgramImage.NO_CHECKSUM);
+            if (program != null) {
+                return program;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new RuntimeException("Puzzle input file too large (" + size + " bytes)");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long checksum = image == null ? ProgramImage.NO_CHECKSUM : checksum(buffer);
+            long[] program = cached ? ProgramImage.read(image, attributes.size(), modified, checksum) : null;
+            if (program == null) {
+                program = new long[countNumbers(buffer)];
+                parseNumbers(buffer, program);
+            }
+            if (image != null) {
+                Files.createDirectories(image.getParent());
+                ProgramImage.write(image, program, attributes.size(), modified, checksum);
+            }
+            return program;
+        }
+    }
+
+    /**
+     * @return the name of the image of `input`: its file name and the CRC32C of
+     *         its absolute path, so that files of the same name do not share it.
+     */
+    private static String imageName(Path input) {
+        CRC32C crc = new CRC32C();
+        crc.update(input.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        return input.getFileName() + "-" + Long.toHexString(crc.getValue()) + ".img";
+    }
+
+    private static long checksum(MappedByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate());
+        return crc.getValue();
+    }
+
+    private static int countNumbers(MappedByteBuffer buffer) {
+        int count = 1;
+        boolean empty = true;
+        byte last = 0;
+        for (int i = 0, size = buffer.limit(); i < size; i++) {
+            byte b = buffer.get(i);
+            if (b == ',') {
+                count++;
+            } else if (!isWhitespace(b)) {
+                empty = false;
+            }
+            if (!isWhitespace(b)) {
+                last = b;
+            }
+        }
+
+        if (empty) {
+            throw new RuntimeException("Invalid content for the puzzle input file.");
+        }
+
+        // A trailing comma ends the last number rather than starting another
+        return last == ',' ? count - 1 : count;
+    }
+
+    private static void parseNumbers(MappedByteBuffer buffer, long[] program) {
+        int size = buffer.limit();
+        int i = 0;
+        for (int n = 0; n < program.length; n++) {
+            while (i < size && isWhitespace(buffer.get(i))) {
+                i++;
+            }
+
+            boolean negative = i < size && buffer.get(i) == '-';
+            if (negative || (i < size && buffer.get(i) == '+')) {
+                i++;
+            }
+
+            // Accumulate negatively, like Long.parseLong, so that Long.MIN_VALUE fits
+            int start = i;
+            long value = 0;
+            while (i < size) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                if (value < Long.MIN_VALUE / 10 || value * 10 < Long.MIN_VALUE + digit) {
+                    throw invalidNumber(start, "out of range");
+                }
+                value = value * 10 - digit;
+                i++;
+            }
+            if (i == start || (!negative && value == Long.MIN_VALUE)) {
+                throw invalidNumber(start, i == start ? "number expected" : "out of range");
+            }
+
+            while (i < size && isWhitespace(buffer.get(i))) {
+                i++;
+            }
+            if (i < size && buffer.get(i++) != ',') {
+                throw invalidNumber(i - 1, "expected a comma");
+            }
+
+            program[n] = negative ? value : -value;
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static RuntimeException invalidNumber(int offset, String reason) {
+        return new RuntimeException("Invalid number in the puzzle input file at byte " + offset + " (" + reason + ")");
+    }
+}
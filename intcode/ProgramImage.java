@@ -0,0 +1,85 @@
+package intcode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary form of a program, so that it can be loaded without parsing text.
+ *
+ * Little-endian: magic, then the size, modification time (in nanoseconds) and
+ * CRC32C of the text the program was parsed from, the number of cells, all
+ * longs, then the cells as longs.
+ */
+final class ProgramImage {
+    private static final long MAGIC = 0x32474d4943544e49L; // "INTCIMG2"
+    private static final int HEADER_SIZE = 40;
+    // Checksum given to `read` when the text was not read
+    static final long NO_CHECKSUM = -1;
+
+    private ProgramImage() {
+    }
+
+    /**
+     * @return the program in `image`, or null if it is not a valid image or was
+     *         not parsed from the text described, i.e. neither the size and
+     *         modification time nor the checksum of the text match.
+     */
+    static long[] read(Path image, long textSize, long textModified, long textChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            long length = buffer.getLong(32);
+            if (buffer.getLong(0) != MAGIC || length < 0 || size != HEADER_SIZE + length * Long.BYTES) {
+                return null;
+            }
+            boolean sameStamp = buffer.getLong(8) == textSize && buffer.getLong(16) == textModified;
+            if (!sameStamp && buffer.getLong(24) != textChecksum) {
+                return null;
+            }
+
+            long[] program = new long[(int) length];
+            buffer.slice(HEADER_SIZE, (int) (size - HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer()
+                    .get(program);
+            return program;
+        }
+    }
+
+    /**
+     * Writes `program`, parsed from the text described, to `image`. Readers
+     * never see a partial image: it is written to a temporary file that is then
+     * renamed.
+     */
+    static void write(Path image, long[] program, long textSize, long textModified, long textChecksum)
+            throws IOException {
+        Path temporary = Files.createTempFile(image.getParent(), image.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                int size = Math.addExact(HEADER_SIZE, Math.multiplyExact(program.length, Long.BYTES));
+                ByteBuffer buffer = ByteBuffer.allocate(size);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putLong(MAGIC).putLong(textSize).putLong(textModified).putLong(textChecksum)
+                        .putLong(program.length);
+                buffer.asLongBuffer().put(program);
+                buffer.rewind();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, image, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
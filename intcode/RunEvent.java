@@ -0,0 +1,30 @@
+package intcode;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one run of an Intcode computer, i.e. one call
+ * to `run`, `runUntilOutput` or `runUntilOutputs`.
+ */
+@Name("intcode.Run")
+@Label("Intcode Run")
+@Category("Intcode")
+final class RunEvent extends Event {
+    @Label("Start Position")
+    int startPosition;
+
+    @Label("End Position")
+    int endPosition;
+
+    @Label("Status")
+    @Description("Why the run returned: OUTPUT, NEEDS_INPUT or HALTED")
+    String status;
+
+    @Label("Instructions")
+    @Description("Instructions executed, only counted by an InstrumentedIntcode")
+    long instructions;
+}
@@ -0,0 +1,213 @@
+package intcode;
+
+/**
+ * Ring buffer of the last instructions an Intcode computer executed, for
+ * post-mortem debugging (see Intcode.setTrace). Each entry holds the position,
+ * the decoded instruction, the relative base before it ran, the cells of the
+ * instruction, the values of its operands and the value it stored, if any, in
+ * one preallocated long[], so recording never allocates. The dump reads only
+ * the entries, not the memory, so each entry shows what ran, even if the
+ * program or the host later overwrote its cells.
+ *
+ * An entry is one dispatch of the interpreter, which may be a fused pair of
+ * instructions (see Intcode.fuse); both are then recorded. The operands are
+ * read before the dispatch runs, except the condition of the jump of a fused
+ * comparison, which is the result of the comparison.
+ *
+ * Recording copies up to 7 cells and reads up to 5 operands per dispatch, so
+ * tracing is for debugging rather than left on: Day9Benchmark.sensorBoostTraced,
+ * the BOOST program of day 9 with a trace of 1024 entries, takes 2.7 times as
+ * long per operation as Day9Benchmark.sensorBoost, which runs it untraced
+ * (17.95 against 6.61 ms, JMH average time, 3 forks of 10 iterations).
+ */
+public final class Trace {
+    // Longs per entry (as a shift), and their offsets: the cells of a fused
+    // pair of instructions and the operands of both
+    private static final int FIELD_BITS = 4;
+    private static final int INSTRUCTION = 0;
+    private static final int RELATIVE_BASE = 1;
+    private static final int WRITE_ADDRESS = 2;
+    private static final int WRITE_VALUE = 3;
+    private static final int CELLS = 4;
+    private static final int MAX_CELLS = 7;
+    private static final int OPERANDS = CELLS + MAX_CELLS;
+
+    private final long[] mEntries;
+    private final int mMask;
+    private long mCount;
+
+    /**
+     * @param capacity number of entries kept, rounded up to a power of 2.
+     */
+    public Trace(int capacity) {
+        if (capacity < 1 || capacity > (1 << 24)) {
+            throw new RuntimeException("Invalid trace capacity (" + capacity + ")");
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        size = size < capacity ? size << 1 : size;
+        mEntries = new long[size << FIELD_BITS];
+        mMask = size - 1;
+    }
+
+    /**
+     * @return number of entries recorded so far, including those dropped from
+     *         the buffer.
+     */
+    public long getRecordedCount() {
+        return mCount;
+    }
+
+    public void clear() {
+        mCount = 0;
+    }
+
+    /**
+     * Starts recording a run. The interpreter keeps the number of the entry
+     * executing in a local while it runs, like its pc, and records into the
+     * returned ring with `record`.
+     */
+    long[] open() {
+        return mEntries;
+    }
+
+    /**
+     * Records entry number `number`: the dispatch at `position` of `decoded`,
+     * as `memory` holds it before it runs.
+     */
+    static void record(long[] entries, long number, Memory memory, int position, int decoded, long relativeBase) {
+        int entry = (int) (number << FIELD_BITS) & (entries.length - 1);
+        entries[entry + INSTRUCTION] = (long) position << 32 | decoded;
+        entries[entry + RELATIVE_BASE] = relativeBase;
+        entries[entry + WRITE_ADDRESS] = -1;
+
+        int first = Intcode.firstOf(decoded);
+        int count = recordInstruction(entries, entry, 0, memory, position, first, relativeBase);
+        int second = Intcode.secondOf(decoded);
+        if (second == 0) {
+            return;
+        }
+
+        if (Operation.opcode(first) == Intcode.OP_RELATIVEBASEOFFSET) {
+            recordInstruction(entries, entry, count, memory, position + 1 + count, second,
+                    relativeBase + entries[entry + OPERANDS]);
+        } else {
+            // The jump tests the result of the comparison
+            recordInstruction(entries, entry, count, memory, position + 1 + count, second, relativeBase);
+            long a = entries[entry + OPERANDS];
+            long b = entries[entry + OPERANDS + 1];
+            entries[entry + OPERANDS + count] = (Operation.opcode(first) == Intcode.OP_LESSTHAN ? a < b : a == b)
+                    ? 1
+                    : 0;
+        }
+    }
+
+    /**
+     * Records the cells and operands of the instruction at `address`, packed
+     * as `packed`, after the first `operand` operands of the entry.
+     *
+     * @return number of operands of the instruction.
+     */
+    private static int recordInstruction(long[] entries, int entry, int operand, Memory memory, int address,
+            int packed, long relativeBase) {
+        int opcode = Operation.opcode(packed);
+        int count = Operation.parameterCount(opcode);
+        int destination = count == 3 ? 2 : opcode == Intcode.OP_INPUT ? 0 : -1;
+        int cells = entry + CELLS + (int) (address - (entries[entry + INSTRUCTION] >>> 32));
+        int operands = entry + OPERANDS + operand;
+
+        entries[cells] = memory.read(address);
+        for (int i = 0; i < count; i++) {
+            long parameter = memory.read(address + 1 + i);
+            int mode = Operation.mode(packed, i);
+            entries[cells + 1 + i] = parameter;
+            entries[operands + i] = i != destination ? Operation.operand(memory, parameter, mode, relativeBase)
+                    : mode == Intcode.MODE_RELATIVE ? parameter + relativeBase : parameter;
+        }
+        return count;
+    }
+
+    /**
+     * Records that entry number `number` stores `value` into `address`.
+     */
+    void recordWrite(long number, long address, long value) {
+        int entry = (int) (number & mMask) << FIELD_BITS;
+        mEntries[entry + WRITE_ADDRESS] = address;
+        mEntries[entry + WRITE_VALUE] = value;
+    }
+
+    /**
+     * Ends a run, when the interpreter stops.
+     *
+     * @param count number of entries recorded so far.
+     */
+    void close(long count) {
+        mCount = count;
+    }
+
+    /**
+     * @return the recorded instructions, oldest first, one entry per line with
+     *         the values of its operands, destinations as addresses, and the
+     *         value it stored.
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        for (long i = Math.max(mCount - (mMask + 1), 0); i < mCount; i++) {
+            int entry = (int) (i & mMask) << FIELD_BITS;
+            int position = (int) (mEntries[entry + INSTRUCTION] >>> 32);
+            int decoded = (int) mEntries[entry + INSTRUCTION];
+            int first = Operation.pack(mEntries[entry + CELLS]);
+            int count = Operation.name(Operation.opcode(first)) == null ? 0
+                    : Operation.parameterCount(Operation.opcode(first));
+            StringBuilder operands = new StringBuilder();
+            String instructions = disassemble(entry, position, position, first, 0, operands);
+            if (Operation.opcode(decoded) != Operation.opcode(first)) {
+                // Fused with the next instruction
+                int next = position + 1 + count;
+                instructions += "; " + disassemble(entry, position, next,
+                        Operation.pack(mEntries[entry + CELLS + next - position]), count, operands.append("; "));
+            }
+
+            String written = mEntries[entry + WRITE_ADDRESS] < 0 ? ""
+                    : String.format("  [%d] <- %d", mEntries[entry + WRITE_ADDRESS], mEntries[entry + WRITE_VALUE]);
+            text.append(String.format("%10d  %6d: %-48s rb=%d {%s}%s%n", i, position, instructions,
+                    mEntries[entry + RELATIVE_BASE], operands, written));
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * @return the recorded instruction at `address` in assembly form, after
+     *         appending its operands, from the `operand`-th one of the entry,
+     *         to `operands`.
+     */
+    private String disassemble(int entry, int position, int address, int packed, int operand,
+            StringBuilder operands) {
+        int count = Operation.name(Operation.opcode(packed)) == null ? 0
+                : Operation.parameterCount(Operation.opcode(packed));
+        for (int i = 0; i < count; i++) {
+            long value = mEntries[entry + OPERANDS + operand + i];
+            operands.append(i == 0 ? "" : ", ").append(isDestination(packed, i) ? "@" : "").append(value);
+        }
+        return Operation.disassemble(cell -> mEntries[entry + CELLS + (int) (cell - position)], address);
+    }
+
+    /**
+     * @return whether the `index`-th parameter of `packed` is the address it
+     *         writes to.
+     */
+    private static boolean isDestination(int packed, int index) {
+        switch (Operation.opcode(packed)) {
+            case Intcode.OP_INPUT:
+                return index == 0;
+            case Intcode.OP_ADD:
+            case Intcode.OP_MULTIPLY:
+            case Intcode.OP_LESSTHAN:
+            case Intcode.OP_EQUALS:
+                return index == 2;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package intcode.check;
+
+import java.lang.management.ManagementFactory;
+
+import intcode.InstrumentedIntcode;
+import intcode.Intcode;
+import intcode.Parser;
+
+/**
+ * Checks that the interpreter allocates nothing per guest instruction once
+ * warmed up: a run in sensor boost mode executes hundreds of thousands more
+ * instructions than one in test mode, and must not allocate more. What both
+ * allocate, e.g. the memory page beyond the program, is per run. Nor must a
+ * run itself allocate: a program that echoes its input, driven by twice as
+ * many `runUntilOutputs` calls, must not allocate more either. That is checked
+ * first, before the JIT compiles the calls, as its escape analysis would hide
+ * an object a run allocates and drops. Allocation is counted by the
+ * ThreadMXBean of this thread; throws if it differs.
+ *
+ * Takes the BOOST program of day 9, e.g. day9/input.txt.
+ */
+public class AllocationCheck {
+    private static final int WARMUP_RUNS = 200;
+    private static final int RUNS = 20;
+    // Calls to runUntilOutputs of the echo program, then twice as many, far
+    // fewer than the JIT's optimizing compiler waits for
+    private static final int ECHO_CALLS = 500;
+    private static final long[] ECHO = { 3, 100, 4, 100, 1105, 1, 0 };
+
+    public static void main(String args[]) throws Exception {
+        if (args.length < 1) {
+            throw new RuntimeException("Missing puzzle input file.");
+        }
+
+        // Once to load the classes a run uses
+        echoAllocatedBytes(1);
+        long echoBytes = echoAllocatedBytes(ECHO_CALLS);
+        long doubleEchoBytes = echoAllocatedBytes(2 * ECHO_CALLS);
+        System.out.printf("Echo: %d runs, %d bytes; %d runs, %d bytes%n", ECHO_CALLS, echoBytes, 2 * ECHO_CALLS,
+                doubleEchoBytes);
+        if (doubleEchoBytes > echoBytes) {
+            throw new RuntimeException("runUntilOutputs allocates per run");
+        }
+
+        long[] instructionArray = Parser.loadProgram(args[0]);
+        long testInstructions = countInstructions(instructionArray, 1);
+        long boostInstructions = countInstructions(instructionArray, 2);
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            allocatedBytes(instructionArray, 1);
+            allocatedBytes(instructionArray, 2);
+        }
+
+        // The fewest bytes over several runs, as the counter may include
+        // allocations of the JVM itself on this thread
+        long testBytes = Long.MAX_VALUE;
+        long boostBytes = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            testBytes = Math.min(testBytes, allocatedBytes(instructionArray, 1));
+            boostBytes = Math.min(boostBytes, allocatedBytes(instructionArray, 2));
+        }
+
+        double perInstruction = (double) (boostBytes - testBytes) / (boostInstructions - testInstructions);
+        System.out.printf("Test mode: %d instructions, %d bytes%n", testInstructions, testBytes);
+        System.out.printf("Sensor boost: %d instructions, %d bytes%n", boostInstructions, boostBytes);
+        System.out.printf("Allocation: %.3f bytes per instruction%n", perInstruction);
+        if (boostBytes > testBytes) {
+            throw new RuntimeException("The interpreter allocates per instruction");
+        }
+    }
+
+    private static long countInstructions(long[] instructionArray, long mode) {
+        InstrumentedIntcode intcode = new InstrumentedIntcode(instructionArray, new long[] { mode });
+        intcode.run();
+        return intcode.getInstructionCount();
+    }
+
+    /**
+     * @return bytes allocated by running the program in `mode`, not counting
+     *         the creation of the computer.
+     */
+    private static long allocatedBytes(long[] instructionArray, long mode) {
+        Intcode intcode = new Intcode(instructionArray, new long[] { mode });
+        long before = threadAllocatedBytes();
+        intcode.run();
+        return threadAllocatedBytes() - before;
+    }
+
+    /**
+     * @return bytes allocated by `calls` calls to runUntilOutputs of the echo
+     *         program, each for one output, not counting the creation of the
+     *         computer and its first run.
+     */
+    private static long echoAllocatedBytes(int calls) {
+        Intcode intcode = new Intcode(ECHO, null);
+        intcode.setInputSupplier(() -> 7);
+        long[] outputs = new long[1];
+        intcode.runUntilOutputs(outputs, 1);
+        long before = threadAllocatedBytes();
+        for (int i = 0; i < calls; i++) {
+            intcode.runUntilOutputs(outputs, 1);
+        }
+        return threadAllocatedBytes() - before;
+    }
+
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            throw new RuntimeException("Allocation counters not supported by this JVM");
+        }
+
+        return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,50 @@
+package intcode.check;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import intcode.Checkpoint;
+import intcode.Intcode;
+
+/**
+ * Checks that a program larger than the pages the memory indexes directly
+ * keeps what it writes into its own image after a checkpoint, and that the
+ * next checkpoint saves it: the program echoes inputs through a cell of the
+ * image across two saves, then a fresh computer restored from the second save
+ * outputs the cell. Throws if an output differs from the input.
+ */
+public class CheckpointCheck {
+    // Beyond the 4096 pages of 1024 cells kept in the page array
+    private static final int IMAGE_SIZE = 5_000_000;
+    private static final int CELL = 4_500_000;
+
+    public static void main(String args[]) throws Exception {
+        long[] program = { 3, CELL, 4, CELL, 3, CELL, 4, CELL, 4, CELL, 99 };
+        long[] image = new long[IMAGE_SIZE];
+        System.arraycopy(program, 0, image, 0, program.length);
+
+        Path file = Files.createTempFile("intcode", ".checkpoint");
+        try (Checkpoint checkpoint = new Checkpoint(file)) {
+            Intcode intcode = new Intcode(image, new long[] { 7 });
+            check("Before first save", intcode.runUntilOutput(), 7);
+            checkpoint.save(intcode);
+
+            intcode.provideInput(new long[] { 8 });
+            check("After first save", intcode.runUntilOutput(), 8);
+            checkpoint.save(intcode);
+
+            Intcode restored = new Intcode(image, null);
+            checkpoint.restore(restored);
+            check("Restored from second save", restored.run(), 8);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void check(String name, long output, long expected) {
+        System.out.printf("%s: %d%n", name, output);
+        if (output != expected) {
+            throw new RuntimeException(name + " output " + output + " instead of " + expected);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package intcode.check;
+
+import intcode.InstrumentedIntcode;
+import intcode.Intcode;
+
+/**
+ * Checks that an invalid instruction leaves no trace in the statistics of
+ * InstrumentedIntcode: the counts per opcode, per address and per basic block
+ * agree with the number of instructions executed. Throws if they do not.
+ */
+public class InstrumentedCheck {
+    public static void main(String args[]) {
+        // Jumps to address 3, which starts a block with the invalid opcode 42
+        long[] program = { 1105, 1, 3, 42 };
+        InstrumentedIntcode computer = new InstrumentedIntcode(program, new long[0]);
+        String error = null;
+        try {
+            computer.run();
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+        }
+        System.out.printf("Stopped by: %s%n", error);
+        if (error == null) {
+            throw new RuntimeException("Opcode 42 ran without an error");
+        }
+
+        long opcodeTotal = 0;
+        for (int opcode = 0; opcode <= Intcode.OP_HALT; opcode++) {
+            opcodeTotal += computer.getOpcodeCount(opcode);
+        }
+        check("Instructions", computer.getInstructionCount(), 1);
+        check("Instructions per opcode", opcodeTotal, 1);
+        check("Runs of address 3", computer.getAddressCount(3), 0);
+        check("Block entries at address 3", computer.getBlockEntryCount(3), 0);
+    }
+
+    private static void check(String name, long count, long expected) {
+        System.out.printf("%s: %d%n", name, count);
+        if (count != expected) {
+            throw new RuntimeException(name + " counted " + count + " instead of " + expected);
+        }
+    }
+}
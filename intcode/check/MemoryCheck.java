@@ -0,0 +1,37 @@
+package intcode.check;
+
+import intcode.Intcode;
+
+/**
+ * Checks that a program larger than the pages the memory indexes directly
+ * reads back what it writes into its own image, once the pages are shared
+ * with a fork. Throws if a computer outputs another value than its input.
+ */
+public class MemoryCheck {
+    // Beyond the 4096 pages of 1024 cells kept in the page array
+    private static final int IMAGE_SIZE = 5_000_000;
+    private static final int CELL = 4_500_000;
+
+    public static void main(String args[]) {
+        // Echoes two inputs through a cell of the image
+        long[] program = { 3, CELL, 4, CELL, 3, CELL, 4, CELL, 99 };
+        long[] image = new long[IMAGE_SIZE];
+        System.arraycopy(program, 0, image, 0, program.length);
+
+        Intcode parent = new Intcode(image, new long[] { 7 });
+        check("Before fork", parent.runUntilOutput(), 7);
+
+        Intcode child = parent.fork();
+        parent.provideInput(new long[] { 8 });
+        child.provideInput(new long[] { 9 });
+        check("Parent after fork", parent.run(), 8);
+        check("Fork", child.run(), 9);
+    }
+
+    private static void check(String name, long output, long expected) {
+        System.out.printf("%s: %d%n", name, output);
+        if (output != expected) {
+            throw new RuntimeException(name + " output " + output + " instead of " + expected);
+        }
+    }
+}